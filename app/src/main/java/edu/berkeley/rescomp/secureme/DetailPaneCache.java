@@ -0,0 +1,87 @@
+package edu.berkeley.rescomp.secureme;
+
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+
+/**
+ * Pre-rendered detail content for every security item, so showing an item's
+ * details is only a bind and never runs a check. The content is refreshed
+ * from the items after each checklist pass; the entries themselves are
+ * allocated once and reused. Must only be used from the main thread.
+ */
+public class DetailPaneCache {
+    /**
+     * What the detail pane shows for one item.
+     */
+    public static class DetailContent {
+        private CharSequence text;
+        private CharSequence buttonText;
+        private Intent intent;
+
+        public CharSequence getText() {
+            return text;
+        }
+
+        /**
+         * @return label of the button; null if there is to be no button
+         */
+        public CharSequence getButtonText() {
+            return buttonText;
+        }
+
+        /**
+         * @return intent to start from the button; null if there is to be no button
+         */
+        public Intent getIntent() {
+            return intent;
+        }
+    }
+
+    private static final Map<String, DetailContent> sContents = new HashMap<String, DetailContent>();
+
+    private static boolean sRendered;
+
+    static {
+        for (SecurityChecklist.SecurityItem item : SecurityChecklist.ITEMS) {
+            sContents.put(item.getTitle(), new DetailContent());
+        }
+    }
+
+    private DetailPaneCache() {
+    }
+
+    /**
+     * Re-renders every item from its state after the latest checklist pass. A pass is only
+     * run here if the items have not been through one yet.
+     */
+    public static void refresh(Context context) {
+        if (!SecurityChecklist.hasCheckedItems()) {
+            SecurityChecklist.checkSettings(context);
+        }
+        for (int i = 0, size = SecurityChecklist.ITEMS.size(); i < size; i++) {
+            SecurityChecklist.SecurityItem item = SecurityChecklist.ITEMS.get(i);
+            DetailContent content = sContents.get(item.getTitle());
+            content.text = context.getText(item.getDetailsId());
+            content.intent = item.getIntent();
+            content.buttonText = (content.intent == null || item.getButtonTextId() == 0)
+                    ? null : context.getText(item.getButtonTextId());
+        }
+        sRendered = true;
+    }
+
+    /**
+     * @param itemId title of the item, as used in {@link SecurityChecklist#ITEM_MAP}
+     * @return rendered content of the item; null if there is no such item
+     */
+    public static DetailContent get(Context context, String itemId) {
+        if (!sRendered) {
+            refresh(context);
+        }
+        return sContents.get(itemId);
+    }
+}
@@ -15,6 +15,7 @@ import android.widget.TextView;
 
 
 import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.diagnostics.JankMonitor;
 
 /**
  * A fragment representing a single Item detail screen.
@@ -30,9 +31,18 @@ public class ItemDetailFragment extends Fragment {
     public static final String ARG_ITEM_ID = "item_id";
 
     /**
-     * The content this fragment is presenting.
+     * The ID of the item this fragment is presenting.
      */
-    private SecurityChecklist.SecurityItem mItem;
+    private String mItemId;
+
+    private TextView mDetailText;
+    private Button mDetailButton;
+
+    /**
+     * Whether the screen was left since it was created, e.g. through the detail
+     * button or Home, so the user may have changed a setting in the meantime.
+     */
+    private boolean mStopped;
 
     /**
      * Mandatory empty constructor for the fragment manager to instantiate the
@@ -45,54 +55,108 @@ public class ItemDetailFragment extends Fragment {
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        if (getArguments().containsKey(ARG_ITEM_ID)) {
-            // Load the content specified by the fragment
-            // arguments. In a real-world scenario, use a Loader
-            // to load content from a content provider.
-            mItem = SecurityChecklist.ITEM_MAP.get(getArguments().getString(ARG_ITEM_ID));
+        if (savedInstanceState != null && savedInstanceState.containsKey(ARG_ITEM_ID)) {
+            // The pane may have been rebound to another item since it was created.
+            mItemId = savedInstanceState.getString(ARG_ITEM_ID);
+        } else if (getArguments().containsKey(ARG_ITEM_ID)) {
+            mItemId = getArguments().getString(ARG_ITEM_ID);
         }
     }
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container,
                              Bundle savedInstanceState) {
+        long start = JankMonitor.begin();
         View rootView = inflater.inflate(R.layout.fragment_item_detail, container, false);
-
-        // Show the content as text in a TextView.
-        if (mItem != null) {
-            Activity context = getActivity();
-            mItem.update(context);
-            ((TextView) rootView.findViewById(R.id.item_detail))
-                    .setText(context.getString(mItem.getDetailsId()));
-
-            Button btnToNextScreen = (Button) rootView.findViewById(R.id.item_detail_button);
-            if (mItem.getIntent() != null) {
-                btnToNextScreen.setText(mItem.getButtonTextId());
-                btnToNextScreen.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        startActivity(new Intent(mItem.getIntent()));
-                    }
-                });
-                if (btnToNextScreen.getVisibility() != View.VISIBLE) {
-                    btnToNextScreen.setVisibility(View.VISIBLE);
-                }
-            } else if (btnToNextScreen != null) {
-                    btnToNextScreen.setVisibility(View.GONE);
+        mDetailText = (TextView) rootView.findViewById(R.id.item_detail);
+        mDetailButton = (Button) rootView.findViewById(R.id.item_detail_button);
+        mDetailButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                DetailPaneCache.DetailContent content =
+                        DetailPaneCache.get(getActivity(), mItemId);
+                if (content != null && content.getIntent() != null) {
+                    startActivity(new Intent(content.getIntent()));
                 }
             }
+        });
 
+        // Show the pre-rendered content; no check runs here.
+        bindContent();
+
+        JankMonitor.end(JankMonitor.DETAIL_ON_CREATE_VIEW, start);
         return rootView;
     }
 
     @Override
     public void onResume() {
+        long start = JankMonitor.begin();
         super.onResume();
-        if (mItem != null) {
-            Activity context = getActivity();
-            mItem.update(context);
-            ((TextView) context.findViewById(R.id.item_detail))
-                    .setText(context.getString(mItem.getDetailsId()));
+        // The first resume shows what the list was rendered from; later ones check again.
+        if (mStopped) {
+            mStopped = false;
+            // In two-pane mode ItemListActivity already runs a pass on every resume.
+            if (!(getActivity() instanceof ItemListActivity)) {
+                SecurityChecklist.checkSettings(getActivity());
+                DetailPaneCache.refresh(getActivity());
+            }
+        }
+        bindContent();
+        JankMonitor.screenShown(JankMonitor.SCREEN_DETAIL);
+        JankMonitor.end(JankMonitor.DETAIL_ON_RESUME, start);
+    }
+
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(ARG_ITEM_ID, mItemId);
+    }
+
+    /**
+     * Shows another item in the existing views, e.g. when a different item is
+     * selected in two-pane mode.
+     */
+    public void bind(String itemId) {
+        mItemId = itemId;
+        bindContent();
+    }
+
+    private void bindContent() {
+        Activity context = getActivity();
+        if (mDetailText == null || context == null || mItemId == null) {
+            return;
+        }
+        DetailPaneCache.DetailContent content = DetailPaneCache.get(context, mItemId);
+        if (content == null) {
+            return;
         }
+        mDetailText.setText(content.getText());
+        if (content.getButtonText() != null) {
+            mDetailButton.setText(content.getButtonText());
+            if (mDetailButton.getVisibility() != View.VISIBLE) {
+                mDetailButton.setVisibility(View.VISIBLE);
+            }
+        } else {
+            mDetailButton.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        JankMonitor.screenHidden(JankMonitor.SCREEN_DETAIL);
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        mStopped = true;
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        mDetailText = null;
+        mDetailButton = null;
     }
 }
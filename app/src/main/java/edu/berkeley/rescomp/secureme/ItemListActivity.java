@@ -1,12 +1,25 @@
 package edu.berkeley.rescomp.secureme;
 
+import android.app.AlertDialog;
 import android.app.ListFragment;
+import android.content.Context;
 import android.content.Intent;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentActivity;
 import android.support.v4.app.FragmentManager;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.IOException;
 
 import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.diagnostics.JankMonitor;
+import edu.berkeley.rescomp.secureme.report.ReportExporter;
 
 
 /**
@@ -27,6 +40,8 @@ import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
  */
 public class ItemListActivity extends FragmentActivity
         implements ItemListFragment.Callbacks {
+    private static final String TAG = "ItemListActivity";
+    private static final String TRACE_DIR = "traces";
 
     /**
      * Whether or not the activity is in two-pane mode, i.e. running on a tablet
@@ -71,9 +86,16 @@ public class ItemListActivity extends FragmentActivity
     @Override
     public void onItemSelected(String id) {
         if (mTwoPane) {
-            // In two-pane mode, show the detail view in this activity by
-            // adding or replacing the detail fragment using a
-            // fragment transaction.
+            // In two-pane mode, show the detail view in this activity.
+            // A detail fragment that is already showing is simply rebound
+            // to the new item, reusing its views; otherwise it is added
+            // using a fragment transaction.
+            Fragment current = getSupportFragmentManager()
+                    .findFragmentById(R.id.item_detail_container);
+            if (current instanceof ItemDetailFragment && current.getView() != null) {
+                ((ItemDetailFragment) current).bind(id);
+                return;
+            }
             Bundle arguments = new Bundle();
             arguments.putString(ItemDetailFragment.ARG_ITEM_ID, id);
             ItemDetailFragment fragment = new ItemDetailFragment();
@@ -93,7 +115,111 @@ public class ItemListActivity extends FragmentActivity
 
     @Override
     public void onResume() {
+        long start = JankMonitor.begin();
         super.onResume();
         SecurityChecklist.checkSettings(this);
+        DetailPaneCache.refresh(this);
+        JankMonitor.end(JankMonitor.LIST_ACTIVITY_ON_RESUME, start);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.item_list, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        // performance monitoring is a debug-only tool
+        menu.findItem(R.id.action_jank_monitor)
+                .setVisible(BuildConfig.DEBUG)
+                .setChecked(JankMonitor.isEnabled());
+        menu.findItem(R.id.action_jank_summary)
+                .setVisible(BuildConfig.DEBUG && JankMonitor.isEnabled());
+        menu.findItem(R.id.action_record_inputs)
+                .setVisible(BuildConfig.DEBUG)
+                .setChecked(SecurityChecklist.isRecording());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.action_export_json) {
+            new ExportReportTask(this).execute(ReportExporter.Format.JSON);
+            return true;
+        } else if (id == R.id.action_export_csv) {
+            new ExportReportTask(this).execute(ReportExporter.Format.CSV);
+            return true;
+        } else if (id == R.id.action_jank_monitor) {
+            JankMonitor.setEnabled(!JankMonitor.isEnabled());
+            return true;
+        } else if (id == R.id.action_record_inputs) {
+            toggleInputRecording();
+            return true;
+        } else if (id == R.id.action_jank_summary) {
+            JankMonitor.dump();
+            new AlertDialog.Builder(this)
+                    .setTitle(R.string.action_jank_summary)
+                    .setMessage(JankMonitor.getSummary())
+                    .setPositiveButton(android.R.string.ok, null)
+                    .show();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * Traces go to external app storage when available, so they can be pulled without root.
+     */
+    private void toggleInputRecording() {
+        if (SecurityChecklist.isRecording()) {
+            SecurityChecklist.setTraceDirectory(null);
+            return;
+        }
+        File dir = getExternalFilesDir(TRACE_DIR);
+        if (dir == null) {
+            dir = new File(getFilesDir(), TRACE_DIR);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Could not create " + dir);
+            return;
+        }
+        SecurityChecklist.setTraceDirectory(dir);
+        Toast.makeText(this, getString(R.string.recording_inputs, dir.getPath()),
+                Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * Writes the report off the main thread, then offers it to other apps.
+     */
+    private static class ExportReportTask extends AsyncTask<ReportExporter.Format, Void, Intent> {
+        private final Context context;
+
+        ExportReportTask(Context context) {
+            this.context = context.getApplicationContext();
+        }
+
+        @Override
+        protected Intent doInBackground(ReportExporter.Format... formats) {
+            try {
+                return ReportExporter.exportForSharing(context, formats[0], true);
+            } catch (IOException e) {
+                Log.e(TAG, "Could not export report", e);
+                return null;
+            }
+        }
+
+        @Override
+        protected void onPostExecute(Intent intent) {
+            if (intent == null) {
+                Toast.makeText(context, R.string.export_failed, Toast.LENGTH_SHORT).show();
+                return;
+            }
+            Intent chooser = Intent.createChooser(intent,
+                    context.getString(R.string.export_chooser_title));
+            chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+            context.startActivity(chooser);
+        }
     }
 }
@@ -15,6 +15,7 @@ import android.widget.TextView;
 
 
 import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.diagnostics.JankMonitor;
 
 /**
  * A list fragment representing a list of Items. This fragment
@@ -153,8 +154,17 @@ public class ItemListFragment extends ListFragment {
 
     @Override
     public void onResume() {
+        long start = JankMonitor.begin();
         super.onResume();
         SecurityChecklist.checkSettings(getActivity());
+        JankMonitor.screenShown(JankMonitor.SCREEN_LIST);
+        JankMonitor.end(JankMonitor.LIST_ON_RESUME, start);
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        JankMonitor.screenHidden(JankMonitor.SCREEN_LIST);
     }
 
     class IconicAdapter extends ArrayAdapter<SecurityChecklist.SecurityItem> {
@@ -169,6 +179,7 @@ public class ItemListFragment extends ListFragment {
 
         @Override
         public View getView(int position, View convertView, ViewGroup parent) {
+            long start = JankMonitor.begin();
             View view = super.getView(position, convertView, parent);
             SecurityChecklist.SecurityItem item = SecurityChecklist.ITEMS.get(position);
             ((TextView) view).setCompoundDrawablesWithIntrinsicBounds(
@@ -187,6 +198,7 @@ public class ItemListFragment extends ListFragment {
 //            }
 //            TextView text = (TextView) view.findViewById(R.id.item_list_text);
 //            text.setText(item.getTitle());
+            JankMonitor.end(JankMonitor.LIST_GET_VIEW, start);
             return view;
         }
     }
@@ -0,0 +1,98 @@
+package edu.berkeley.rescomp.secureme;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.widget.RemoteViews;
+
+import edu.berkeley.rescomp.secureme.checklist.EvaluationService;
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.checklist.SnapshotStore;
+
+/**
+ * Home-screen widget showing the security posture at a glance. It only ever
+ * renders the stored snapshot; fresh results are requested from the
+ * {@link EvaluationService}, which broadcasts
+ * {@link SecurityChecklist#ACTION_RESULTS_CHANGED} when they differ.
+ */
+public class PostureWidgetProvider extends AppWidgetProvider {
+    /**
+     * Icon views in the order of {@link ResultSnapshot#KEYS}.
+     */
+    private static final int[] ICON_IDS = {
+            R.id.widget_icon_location,
+            R.id.widget_icon_antivirus,
+            R.id.widget_icon_sim_lock,
+            R.id.widget_icon_encryption,
+            R.id.widget_icon_remote_control,
+            R.id.widget_icon_secure_lock_screen,
+    };
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (SecurityChecklist.ACTION_RESULTS_CHANGED.equals(intent.getAction())) {
+            AppWidgetManager manager = AppWidgetManager.getInstance(context);
+            int[] appWidgetIds = manager.getAppWidgetIds(
+                    new ComponentName(context, PostureWidgetProvider.class));
+            render(context, manager, appWidgetIds);
+        } else {
+            super.onReceive(context, intent);
+        }
+    }
+
+    @Override
+    public void onUpdate(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        render(context, appWidgetManager, appWidgetIds);
+        EvaluationService.requestEvaluation(context);
+    }
+
+    private static void render(Context context, AppWidgetManager manager, int[] appWidgetIds) {
+        if (appWidgetIds == null || appWidgetIds.length == 0) {
+            return;
+        }
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_posture);
+        ResultSnapshot snapshot = SnapshotStore.load(context);
+        if (snapshot == null) {
+            views.setTextViewText(R.id.widget_summary, context.getString(R.string.widget_not_checked));
+        } else {
+            int failures = 0;
+            for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+                Outcome outcome = snapshot.getOutcome(i);
+                if (outcome == Outcome.FAIL) {
+                    failures++;
+                }
+                views.setImageViewResource(ICON_IDS[i], getIconResource(outcome));
+            }
+            views.setTextViewText(R.id.widget_summary, (failures == 0)
+                    ? context.getString(R.string.widget_all_good)
+                    : context.getResources().getQuantityString(
+                            R.plurals.widget_attention_needed, failures, failures));
+        }
+        Intent launch = new Intent(context, ItemListActivity.class);
+        views.setOnClickPendingIntent(R.id.widget_root,
+                PendingIntent.getActivity(context, 0, launch, 0));
+        manager.updateAppWidget(appWidgetIds, views);
+    }
+
+    private static int getIconResource(Outcome outcome) {
+        switch (outcome) {
+            case PASS:
+                return R.drawable.ic_action_accept;
+            case FAIL:
+                return R.drawable.ic_action_cancel;
+            case UNAVAILABLE:
+                return R.drawable.ic_action_warning;
+            case ENABLED:
+                return R.drawable.ic_action_location_found;
+            case DISABLED:
+                return R.drawable.ic_action_location_off;
+            default:
+                return 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.content.Intent;
+
+/**
+ * Every raw piece of device state that the security items read. Items only
+ * see the device through this interface, so a pass can be run against the
+ * live device ({@link DeviceInputs}), recorded ({@link RecordingInputs}) or
+ * replayed from a trace by the tests.
+ */
+public interface CheckInputs {
+    int getSdkInt();
+
+    long getSecureLong(String name, long def);
+
+    int getSecureInt(String name, int def);
+
+    String getSecureString(String name);
+
+    int getSystemInt(String name, int def);
+
+    boolean isKeyguardSecure();
+
+    int getStorageEncryptionStatus();
+
+    int getPhoneType();
+
+    int getSimState();
+
+    boolean isPackageInstalled(String packageName);
+
+    boolean isPlayStoreAvailable();
+
+    /**
+     * Only used to build the button of an item, never to decide its outcome, so it is
+     * neither recorded nor replayed.
+     *
+     * @return intent that launches the given package; null if it has no launcher activity
+     */
+    Intent getLaunchIntent(String packageName);
+}
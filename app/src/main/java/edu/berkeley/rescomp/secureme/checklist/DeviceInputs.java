@@ -0,0 +1,149 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.app.KeyguardManager;
+import android.app.admin.DevicePolicyManager;
+import android.content.BroadcastReceiver;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
+import android.provider.Settings;
+import android.telephony.TelephonyManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The raw state of the live device. System services are looked up once and
+ * kept, so a checklist pass does not repeat the lookups or allocate on our
+ * side; the framework calls themselves may still allocate. Package lookups
+ * are answered from a cache that is cleared whenever a package is added,
+ * removed or changed.
+ */
+public class DeviceInputs implements CheckInputs {
+    private final ContentResolver contentResolver;
+    private final PackageManager packageManager;
+    private final KeyguardManager keyguardManager;
+    private final DevicePolicyManager devicePolicyManager;
+    private final TelephonyManager telephonyManager;
+    private final Intent marketIntent;
+    private final Map<String, Boolean> installedPackages = new ConcurrentHashMap<String, Boolean>();
+    private volatile Boolean playStoreAvailable;
+
+    public DeviceInputs(Context context) {
+        Context appContext = context.getApplicationContext();
+        contentResolver = appContext.getContentResolver();
+        packageManager = appContext.getPackageManager();
+        keyguardManager = (KeyguardManager) appContext.getSystemService(Context.KEYGUARD_SERVICE);
+        devicePolicyManager =
+                (DevicePolicyManager) appContext.getSystemService(Context.DEVICE_POLICY_SERVICE);
+        telephonyManager =
+                (TelephonyManager) appContext.getSystemService(Context.TELEPHONY_SERVICE);
+        marketIntent = new Intent(Intent.ACTION_VIEW,
+                Uri.parse("market://details?id=" + appContext.getPackageName()));
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        appContext.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                invalidatePackages();
+            }
+        }, filter);
+    }
+
+    /**
+     * Forgets every cached package lookup, so the next pass asks the package manager again.
+     */
+    void invalidatePackages() {
+        installedPackages.clear();
+        playStoreAvailable = null;
+    }
+
+    @Override
+    public int getSdkInt() {
+        return Build.VERSION.SDK_INT;
+    }
+
+    @Override
+    public long getSecureLong(String name, long def) {
+        return Settings.Secure.getLong(contentResolver, name, def);
+    }
+
+    @Override
+    public int getSecureInt(String name, int def) {
+        return Settings.Secure.getInt(contentResolver, name, def);
+    }
+
+    @Override
+    public String getSecureString(String name) {
+        return Settings.Secure.getString(contentResolver, name);
+    }
+
+    @Override
+    public int getSystemInt(String name, int def) {
+        return Settings.System.getInt(contentResolver, name, def);
+    }
+
+    @Override
+    public boolean isKeyguardSecure() {
+        return keyguardManager.isKeyguardSecure();
+    }
+
+    @Override
+    public int getStorageEncryptionStatus() {
+        return devicePolicyManager.getStorageEncryptionStatus();
+    }
+
+    @Override
+    public int getPhoneType() {
+        return telephonyManager.getPhoneType();
+    }
+
+    @Override
+    public int getSimState() {
+        return telephonyManager.getSimState();
+    }
+
+    /**
+     * Asks for the one package directly instead of listing every installed
+     * application, and only the first time: a missing package would otherwise
+     * throw on every pass.
+     */
+    @Override
+    public boolean isPackageInstalled(String packageName) {
+        Boolean installed = installedPackages.get(packageName);
+        if (installed == null) {
+            try {
+                packageManager.getApplicationInfo(packageName, 0);
+                installed = Boolean.TRUE;
+            } catch (PackageManager.NameNotFoundException e) {
+                installed = Boolean.FALSE;
+            }
+            installedPackages.put(packageName, installed);
+        }
+        return installed;
+    }
+
+    @Override
+    public boolean isPlayStoreAvailable() {
+        Boolean available = playStoreAvailable;
+        if (available == null) {
+            available = packageManager.resolveActivity(marketIntent, 0) != null;
+            playStoreAvailable = available;
+        }
+        return available;
+    }
+
+    @Override
+    public Intent getLaunchIntent(String packageName) {
+        return packageManager.getLaunchIntentForPackage(packageName);
+    }
+}
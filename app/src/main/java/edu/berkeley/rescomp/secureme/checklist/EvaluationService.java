@@ -0,0 +1,38 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs checklist passes in the background on behalf of surfaces that only
+ * display results. Requests are coalesced: however many arrive while a pass
+ * is pending, at most one more pass is queued. Passes run on a private set of
+ * items (see {@link SecurityChecklist#checkSettingsInBackground}), never on the
+ * ones the UI shows.
+ */
+public class EvaluationService extends IntentService {
+    private static final AtomicBoolean sPending = new AtomicBoolean();
+
+    public EvaluationService() {
+        super("EvaluationService");
+    }
+
+    /**
+     * Asks for a checklist pass unless one is already pending.
+     */
+    public static void requestEvaluation(Context context) {
+        if (sPending.compareAndSet(false, true)) {
+            context.startService(new Intent(context, EvaluationService.class));
+        }
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        // cleared before the pass, so a change during the pass queues another one
+        sPending.set(false);
+        SecurityChecklist.checkSettingsInBackground(this);
+    }
+}
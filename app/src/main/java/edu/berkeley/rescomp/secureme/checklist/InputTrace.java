@@ -0,0 +1,30 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+/**
+ * Layout of the trace files written by {@link RecordingInputs} and read back
+ * by the replay tests under {@code src/test}. A trace starts with {@link #MAGIC}, {@link #VERSION}
+ * and a UTF description of the device, followed by one record per input read.
+ * Each record is a tag byte, a UTF name for the inputs that take one, and the
+ * value. The trace ends with {@link #TAG_OUTCOMES} and the packed outcomes
+ * the device computed.
+ */
+final class InputTrace {
+    static final int MAGIC = 0x534d5452; // "SMTR"
+    static final int VERSION = 1;
+
+    static final int TAG_OUTCOMES = 0;
+    static final int TAG_SDK_INT = 1;
+    static final int TAG_SECURE_LONG = 2;
+    static final int TAG_SECURE_INT = 3;
+    static final int TAG_SECURE_STRING = 4;
+    static final int TAG_SYSTEM_INT = 5;
+    static final int TAG_KEYGUARD_SECURE = 6;
+    static final int TAG_ENCRYPTION_STATUS = 7;
+    static final int TAG_PHONE_TYPE = 8;
+    static final int TAG_SIM_STATE = 9;
+    static final int TAG_PACKAGE_INSTALLED = 10;
+    static final int TAG_PLAY_STORE_AVAILABLE = 11;
+
+    private InputTrace() {
+    }
+}
@@ -0,0 +1,53 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+/**
+ * Machine-readable outcome of a single security item. Unlike the details
+ * string resources, the ids and codes here are stable across releases and
+ * locales, so they are safe to store and to hand to other tools.
+ */
+public enum Outcome {
+    UNKNOWN(0, "unknown"),
+    PASS(1, "pass"),
+    FAIL(2, "fail"),
+    UNAVAILABLE(3, "unavailable"),
+    NOT_APPLICABLE(4, "not_applicable"),
+    ENABLED(5, "enabled"),
+    DISABLED(6, "disabled");
+
+    /**
+     * Number of bits needed to store any outcome id.
+     */
+    public static final int BITS = 4;
+
+    private static final Outcome[] BY_ID = new Outcome[1 << BITS];
+
+    static {
+        for (Outcome outcome : values()) {
+            BY_ID[outcome.id] = outcome;
+        }
+    }
+
+    private final int id;
+    private final String code;
+
+    private Outcome(int id, String code) {
+        this.id = id;
+        this.code = code;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * @return outcome with the given id; {@link #UNKNOWN} if the id is not recognized
+     */
+    public static Outcome fromId(int id) {
+        Outcome outcome = (id >= 0 && id < BY_ID.length) ? BY_ID[id] : null;
+        return (outcome == null) ? UNKNOWN : outcome;
+    }
+}
@@ -0,0 +1,182 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.content.Intent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Passes every read through to another {@link CheckInputs} and records the
+ * value in the compact format described by {@link InputTrace}. The trace is
+ * kept in memory until {@link #writeTo}, so an interrupted pass never leaves a
+ * partial file behind.
+ */
+public class RecordingInputs implements CheckInputs {
+    private final CheckInputs delegate;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+    private final DataOutputStream out = new DataOutputStream(buffer);
+
+    /**
+     * @param description free-form description of the device, e.g. its model and build
+     */
+    public RecordingInputs(CheckInputs delegate, String description) {
+        this.delegate = delegate;
+        try {
+            out.writeInt(InputTrace.MAGIC);
+            out.writeByte(InputTrace.VERSION);
+            out.writeUTF(description);
+        } catch (IOException e) {
+            // writing to memory does not fail
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Ends the trace with the outcomes computed from the recorded inputs and writes it out.
+     */
+    public void writeTo(File file, int packedOutcomes) throws IOException {
+        out.writeByte(InputTrace.TAG_OUTCOMES);
+        out.writeInt(packedOutcomes);
+        out.flush();
+        FileOutputStream fileOut = new FileOutputStream(file);
+        try {
+            buffer.writeTo(fileOut);
+        } finally {
+            fileOut.close();
+        }
+    }
+
+    @Override
+    public int getSdkInt() {
+        int value = delegate.getSdkInt();
+        recordInt(InputTrace.TAG_SDK_INT, value);
+        return value;
+    }
+
+    @Override
+    public long getSecureLong(String name, long def) {
+        long value = delegate.getSecureLong(name, def);
+        try {
+            out.writeByte(InputTrace.TAG_SECURE_LONG);
+            out.writeUTF(name);
+            out.writeLong(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @Override
+    public int getSecureInt(String name, int def) {
+        int value = delegate.getSecureInt(name, def);
+        recordNamedInt(InputTrace.TAG_SECURE_INT, name, value);
+        return value;
+    }
+
+    @Override
+    public String getSecureString(String name) {
+        String value = delegate.getSecureString(name);
+        try {
+            out.writeByte(InputTrace.TAG_SECURE_STRING);
+            out.writeUTF(name);
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @Override
+    public int getSystemInt(String name, int def) {
+        int value = delegate.getSystemInt(name, def);
+        recordNamedInt(InputTrace.TAG_SYSTEM_INT, name, value);
+        return value;
+    }
+
+    @Override
+    public boolean isKeyguardSecure() {
+        boolean value = delegate.isKeyguardSecure();
+        recordBoolean(InputTrace.TAG_KEYGUARD_SECURE, value);
+        return value;
+    }
+
+    @Override
+    public int getStorageEncryptionStatus() {
+        int value = delegate.getStorageEncryptionStatus();
+        recordInt(InputTrace.TAG_ENCRYPTION_STATUS, value);
+        return value;
+    }
+
+    @Override
+    public int getPhoneType() {
+        int value = delegate.getPhoneType();
+        recordInt(InputTrace.TAG_PHONE_TYPE, value);
+        return value;
+    }
+
+    @Override
+    public int getSimState() {
+        int value = delegate.getSimState();
+        recordInt(InputTrace.TAG_SIM_STATE, value);
+        return value;
+    }
+
+    @Override
+    public boolean isPackageInstalled(String packageName) {
+        boolean value = delegate.isPackageInstalled(packageName);
+        try {
+            out.writeByte(InputTrace.TAG_PACKAGE_INSTALLED);
+            out.writeUTF(packageName);
+            out.writeBoolean(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isPlayStoreAvailable() {
+        boolean value = delegate.isPlayStoreAvailable();
+        recordBoolean(InputTrace.TAG_PLAY_STORE_AVAILABLE, value);
+        return value;
+    }
+
+    @Override
+    public Intent getLaunchIntent(String packageName) {
+        return delegate.getLaunchIntent(packageName);
+    }
+
+    private void recordInt(int tag, int value) {
+        try {
+            out.writeByte(tag);
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void recordNamedInt(int tag, String name, int value) {
+        try {
+            out.writeByte(tag);
+            out.writeUTF(name);
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void recordBoolean(int tag, boolean value) {
+        try {
+            out.writeByte(tag);
+            out.writeBoolean(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
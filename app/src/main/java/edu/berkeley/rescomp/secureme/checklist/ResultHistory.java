@@ -0,0 +1,143 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+/**
+ * Append-only record of every change in checklist outcomes. Each record is a
+ * fixed-size pair of timestamp and packed outcomes (see {@link ResultSnapshot}),
+ * so the history can be streamed back without holding it in memory.
+ */
+public class ResultHistory {
+    private static final String TAG = "ResultHistory";
+    private static final String FILE_NAME = "result_history.bin";
+
+    /**
+     * Size in bytes of one record: a long timestamp followed by an int of packed outcomes.
+     */
+    public static final int RECORD_SIZE = 12;
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private ResultHistory() {
+    }
+
+    /**
+     * Appends the snapshot unless its outcomes match the last recorded ones. A record left
+     * incomplete by an interrupted append is dropped first, so later records stay aligned.
+     * Reads and writes the file, so it must not be called on the main thread.
+     */
+    public static synchronized void record(Context context, ResultSnapshot snapshot) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(getFile(context), "rw");
+            long length = raf.length();
+            if (length % RECORD_SIZE != 0) {
+                length -= length % RECORD_SIZE;
+                raf.setLength(length);
+            }
+            if (length >= RECORD_SIZE) {
+                raf.seek(length - RECORD_SIZE + 8);
+                if (raf.readInt() == snapshot.getPacked()) {
+                    return;
+                }
+            }
+            ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+            record.putLong(snapshot.getTimestamp()).putInt(snapshot.getPacked());
+            raf.seek(length);
+            raf.write(record.array());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not record result history", e);
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * Opens the history for reading, oldest record first. The caller must close the reader.
+     */
+    public static Reader open(Context context) throws IOException {
+        File file = getFile(context);
+        if (!file.exists()) {
+            return new Reader(null);
+        }
+        return new Reader(new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE)));
+    }
+
+    private static File getFile(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close result history", e);
+            }
+        }
+    }
+
+    /**
+     * Forward-only cursor over the recorded history. A single reader reuses its
+     * fields for every record, so reading allocates nothing per record.
+     */
+    public static class Reader implements Closeable {
+        private final DataInputStream in;
+        private long timestamp;
+        private int packed;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false if there are no more records
+         */
+        public boolean next() throws IOException {
+            if (in == null) {
+                return false;
+            }
+            try {
+                timestamp = in.readLong();
+                packed = in.readInt();
+                return true;
+            } catch (EOFException e) {
+                // a truncated trailing record is treated as the end of the history
+                return false;
+            }
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public int getPacked() {
+            return packed;
+        }
+
+        public Outcome getOutcome(int slot) {
+            return ResultSnapshot.unpack(packed, slot);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+}
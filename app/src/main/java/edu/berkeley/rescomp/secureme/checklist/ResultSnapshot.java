@@ -0,0 +1,82 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+/**
+ * The outcomes of every security item at one point in time. Outcomes are
+ * packed {@link Outcome#BITS} bits per item into a single int, in the order
+ * given by {@link #KEYS}. That order is part of the stored format and must
+ * only ever be appended to.
+ */
+public final class ResultSnapshot {
+    public static final String KEY_LOCATION = "location";
+    public static final String KEY_ANTIVIRUS = "antivirus";
+    public static final String KEY_SIM_LOCK = "sim_lock";
+    public static final String KEY_ENCRYPTION = "encryption";
+    public static final String KEY_REMOTE_CONTROL = "remote_control";
+    public static final String KEY_SECURE_LOCK_SCREEN = "secure_lock_screen";
+
+    public static final String[] KEYS = {
+            KEY_LOCATION,
+            KEY_ANTIVIRUS,
+            KEY_SIM_LOCK,
+            KEY_ENCRYPTION,
+            KEY_REMOTE_CONTROL,
+            KEY_SECURE_LOCK_SCREEN,
+    };
+
+    public static final int SIZE = KEYS.length;
+
+    private static final int MASK = (1 << Outcome.BITS) - 1;
+
+    private final long timestamp;
+    private final int packed;
+
+    public ResultSnapshot(long timestamp, int packed) {
+        this.timestamp = timestamp;
+        this.packed = packed;
+    }
+
+    /**
+     * @return milliseconds since the epoch at which the outcomes were taken
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getPacked() {
+        return packed;
+    }
+
+    public Outcome getOutcome(int slot) {
+        return unpack(packed, slot);
+    }
+
+    /**
+     * @return outcome for the item with the given key; {@link Outcome#UNKNOWN} if the key is
+     * not recognized
+     */
+    public Outcome getOutcome(String key) {
+        int slot = indexOf(key);
+        return (slot < 0) ? Outcome.UNKNOWN : unpack(packed, slot);
+    }
+
+    /**
+     * @return slot of the given key in {@link #KEYS}; -1 if the key is not recognized
+     */
+    public static int indexOf(String key) {
+        for (int i = 0; i < SIZE; i++) {
+            if (KEYS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int pack(int packed, int slot, Outcome outcome) {
+        int shift = slot * Outcome.BITS;
+        return (packed & ~(MASK << shift)) | (outcome.getId() << shift);
+    }
+
+    public static Outcome unpack(int packed, int slot) {
+        return Outcome.fromId((packed >>> (slot * Outcome.BITS)) & MASK);
+    }
+}
@@ -1,25 +1,26 @@
 package edu.berkeley.rescomp.secureme.checklist;
 
-import android.app.KeyguardManager;
 import android.app.admin.DevicePolicyManager;
-import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.ApplicationInfo;
-import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Build;
 import android.provider.Settings;
 import android.telephony.TelephonyManager;
-import android.text.TextUtils;
 import android.util.Log;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import edu.berkeley.rescomp.secureme.R;
+import edu.berkeley.rescomp.secureme.provider.ResultsProvider;
 
 
 public class SecurityChecklist {
@@ -34,13 +35,55 @@ public class SecurityChecklist {
     public static final String PACKAGE_LOOKOUT = "com.lookout";
     public static final String PACKAGE_AVAST = "com.avast.android.mobilesecurity";
 
+    /**
+     * Broadcast within the app whenever a checklist pass changes the outcomes.
+     */
+    public static final String ACTION_RESULTS_CHANGED =
+            "edu.berkeley.rescomp.secureme.action.RESULTS_CHANGED";
+
+    static final String TRACE_EXTENSION = ".trace";
+
+    private static final String TAG = "SecurityChecklist";
+
     public static List<SecurityItem> ITEMS = new ArrayList<SecurityItem>();
 
     public static Map<String, SecurityItem> ITEM_MAP = new HashMap<String, SecurityItem>();
 
+    /**
+     * The checklist whose items are shown by the UI. Its items must only be
+     * updated from the main thread, through {@link #checkSettings}.
+     */
     public static final SecurityChecklist INSTANCE = new SecurityChecklist();
 
-    private SecurityChecklist() {
+    static {
+        for (SecurityItem item : INSTANCE.items) {
+            ITEMS.add(item);
+            ITEM_MAP.put(item.title, item);
+        }
+    }
+
+    private static final Object sInputsLock = new Object();
+    private static final Object sBackgroundLock = new Object();
+    private static final Object sSnapshotLock = new Object();
+
+    private static DeviceInputs sInputs;
+    private static SecurityChecklist sBackground;
+    private static volatile boolean sItemsChecked;
+    private static volatile File sTraceDir;
+    private static final AtomicInteger sTraceSequence = new AtomicInteger();
+    private static ResultSnapshot sLatestSnapshot;
+    private static long sLastCheckedMillis;
+    /** Only touched on {@link ResultWriter}'s thread. */
+    private static ResultSnapshot sPersisted;
+    private static boolean sPersistedLoaded;
+
+    private final List<SecurityItem> items = new ArrayList<SecurityItem>();
+
+    /**
+     * Creates a checklist with its own items. Only {@link #INSTANCE} is shown by the UI;
+     * other checklists only produce packed outcomes.
+     */
+    SecurityChecklist() {
         addItem(new LocationItem());
         addItem(new AntivirusItem());
         addItem(new SimLockItem());
@@ -49,25 +92,224 @@ public class SecurityChecklist {
         addItem(new LockScreenItem());
     }
 
-    private static void addItem(SecurityItem item) {
-        ITEMS.add(item);
-        ITEM_MAP.put(item.title, item);
+    private void addItem(SecurityItem item) {
+        item.slot = ResultSnapshot.indexOf(item.key);
+        items.add(item);
     }
 
+    /**
+     * Updates every item shown by the UI and publishes the outcomes. Must be
+     * called from the main thread. Once warmed up, a pass whose outcomes did
+     * not change allocates nothing on our side: items are visited by index,
+     * outcomes are packed into an int, and a new snapshot is only created when
+     * that int differs from the latest one.
+     */
     public static void checkSettings(Context context) {
-        for (SecurityItem item : ITEM_MAP.values()) {
-            item.update(context);
+        int packed = INSTANCE.evaluatePass(getInputs(context));
+        sItemsChecked = true;
+        publish(context, packed);
+    }
+
+    /**
+     * A snapshot may exist before this, from the store or a background pass.
+     *
+     * @return whether the items shown by the UI have been through a pass
+     */
+    public static boolean hasCheckedItems() {
+        return sItemsChecked;
+    }
+
+    /**
+     * Runs a pass on a private set of items and publishes the outcomes. Safe to
+     * call from any thread, since it never touches the items shown by the UI;
+     * those are brought up to date by the next {@link #checkSettings}.
+     */
+    public static void checkSettingsInBackground(Context context) {
+        int packed;
+        synchronized (sBackgroundLock) {
+            if (sBackground == null) {
+                sBackground = new SecurityChecklist();
+            }
+            packed = sBackground.evaluatePass(getInputs(context));
+        }
+        publish(context, packed);
+    }
+
+    private static void publish(Context context, int packed) {
+        if (swapLatest(packed, System.currentTimeMillis())) {
+            final Context appContext = context.getApplicationContext();
+            ResultWriter.EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    persistLatest(appContext);
+                }
+            });
+        }
+    }
+
+    /**
+     * Makes the outcomes of a pass the latest ones. Only touches memory, so it is cheap
+     * enough for the main thread and allocates nothing unless the outcomes changed.
+     *
+     * @return whether the outcomes differ from the latest ones and must be persisted
+     */
+    static boolean swapLatest(int packed, long checkedMillis) {
+        synchronized (sSnapshotLock) {
+            sLastCheckedMillis = checkedMillis;
+            if (sLatestSnapshot != null && sLatestSnapshot.getPacked() == packed) {
+                return false;
+            }
+            sLatestSnapshot = new ResultSnapshot(checkedMillis, packed);
+            return true;
+        }
+    }
+
+    /**
+     * Records the latest snapshot and tells listeners about it. Runs on {@link ResultWriter},
+     * so passes on the main thread never wait for the disk; listeners are only told once the
+     * snapshot is stored, since some of them read it back from there.
+     */
+    private static void persistLatest(Context context) {
+        if (!sPersistedLoaded) {
+            // the first pass in a process always looks like a change; compare it against
+            // what an earlier process stored instead
+            sPersistedLoaded = true;
+            sPersisted = SnapshotStore.load(context);
+        }
+        // several changes may have been queued; the latest one covers them all
+        ResultSnapshot latest = getLatestSnapshot();
+        if (latest == sPersisted) {
+            return;
+        }
+        if (sPersisted != null && latest.getPacked() == sPersisted.getPacked()) {
+            // unchanged since it was stored, so keep when it was first seen
+            synchronized (sSnapshotLock) {
+                if (sLatestSnapshot == latest) {
+                    sLatestSnapshot = sPersisted;
+                }
+            }
+            return;
+        }
+        ResultHistory.record(context, latest);
+        SnapshotStore.save(context, latest);
+        sPersisted = latest;
+        context.sendBroadcast(new Intent(ACTION_RESULTS_CHANGED)
+                .setPackage(context.getPackageName()));
+        ResultsProvider.notifyResultsChanged(context);
+    }
+
+    /**
+     * Holds the thread that appends history and stores snapshots, one change at a time.
+     */
+    private static class ResultWriter {
+        static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+    }
+
+    private int evaluatePass(CheckInputs inputs) {
+        File traceDir = sTraceDir;
+        return (traceDir == null) ? evaluate(inputs) : evaluateRecorded(inputs, traceDir);
+    }
+
+    /**
+     * Updates this checklist's items from the given inputs.
+     *
+     * @return outcomes packed as in {@link ResultSnapshot#getPacked}
+     */
+    int evaluate(CheckInputs inputs) {
+        int packed = 0;
+        for (int i = 0, size = items.size(); i < size; i++) {
+            SecurityItem item = items.get(i);
+            item.update(inputs);
+            packed = ResultSnapshot.pack(packed, item.slot, item.getOutcome());
+        }
+        return packed;
+    }
+
+    private int evaluateRecorded(CheckInputs inputs, File traceDir) {
+        // the sequence number keeps passes within the same millisecond apart
+        final File file = new File(traceDir, "trace-" + System.currentTimeMillis() + "-"
+                + sTraceSequence.incrementAndGet() + TRACE_EXTENSION);
+        final RecordingInputs recorder = new RecordingInputs(inputs, Build.MANUFACTURER + " "
+                + Build.MODEL + " " + Build.FINGERPRINT);
+        final int packed = evaluate(recorder);
+        // passes run on the main thread, so the file is written off it
+        TraceWriter.EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    recorder.writeTo(file, packed);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not write input trace " + file, e);
+                }
+            }
+        });
+        return packed;
+    }
+
+    /**
+     * Holds the thread that writes traces, so it is only started once recording is.
+     */
+    private static class TraceWriter {
+        static final Executor EXECUTOR = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Turns the recording mode on or off. While on, every checklist pass writes
+     * the raw inputs it read and the resulting outcomes to a new trace file. Traces
+     * copied into {@code src/test/resources/traces} are replayed by the unit tests.
+     *
+     * @param dir directory for the trace files; null to stop recording
+     */
+    public static void setTraceDirectory(File dir) {
+        sTraceDir = dir;
+    }
+
+    public static boolean isRecording() {
+        return sTraceDir != null;
+    }
+
+    static DeviceInputs getInputs(Context context) {
+        synchronized (sInputsLock) {
+            if (sInputs == null) {
+                sInputs = new DeviceInputs(context);
+            }
+            return sInputs;
+        }
+    }
+
+    /**
+     * The snapshot's timestamp is when its outcomes were first seen; see
+     * {@link #getLastCheckedMillis} for when they were last confirmed.
+     *
+     * @return outcomes of the most recent checklist pass; null if there was none
+     */
+    public static ResultSnapshot getLatestSnapshot() {
+        synchronized (sSnapshotLock) {
+            return sLatestSnapshot;
+        }
+    }
+
+    /**
+     * @return milliseconds since the epoch of the most recent pass; 0 if there was none
+     */
+    public static long getLastCheckedMillis() {
+        synchronized (sSnapshotLock) {
+            return sLastCheckedMillis;
         }
     }
 
     public abstract class SecurityItem {
         protected String title;
+        protected String key;
+        protected int slot;
         protected int detailsId;
         protected int buttonTextId;
         protected String intentString;
+        private Intent intent;
 
-        protected SecurityItem(String title) {
+        protected SecurityItem(String title, String key) {
             this.title = title;
+            this.key = key;
         }
 
         @Override
@@ -79,6 +321,15 @@ public class SecurityChecklist {
             return title;
         }
 
+        /**
+         * Gives the stable machine-readable key of the security item.
+         *
+         * @return one of the keys in {@link ResultSnapshot#KEYS}
+         */
+        public String getKey() {
+            return key;
+        }
+
         public int getDetailsId() {
             return detailsId;
         }
@@ -92,36 +343,52 @@ public class SecurityChecklist {
          */
         public int getIconResource() { return 0; }
 
+        /**
+         * Gives the outcome of the last update, independent of string resources.
+         *
+         * @return outcome of the security item; {@link Outcome#UNKNOWN} if not yet updated
+         */
+        public Outcome getOutcome() { return Outcome.UNKNOWN; }
+
         /**
          * Should return null if there is to be no button.
          *
          * @return intent string to associate with button (null if no intent string specified)
          */
         public Intent getIntent() {
-            return (intentString == null) ? null : new Intent(intentString);
+            if (intentString == null) {
+                return null;
+            }
+            // the intent is shared, so callers copy it before adding anything
+            if (intent == null || !intentString.equals(intent.getAction())) {
+                intent = new Intent(intentString);
+            }
+            return intent;
         }
 
-        public abstract void update(Context context);
+        public void update(Context context) {
+            update(getInputs(context));
+        }
+
+        protected abstract void update(CheckInputs inputs);
     }
 
     protected class LockScreenItem extends SecurityItem {
         private LockScreenItem() {
-            super(SECURE_LOCK_SCREEN);
+            super(SECURE_LOCK_SCREEN, ResultSnapshot.KEY_SECURE_LOCK_SCREEN);
             intentString = "android.app.action.SET_NEW_PASSWORD";
             buttonTextId = R.string.secure_lock_screen_button;
         }
 
         @Override
-        public void update(Context context) {
-            ContentResolver cr = context.getContentResolver();
-            long pwMode = Settings.Secure.getLong(cr, "lockscreen.password_type",
+        protected void update(CheckInputs inputs) {
+            long pwMode = inputs.getSecureLong("lockscreen.password_type",
                     DevicePolicyManager.PASSWORD_QUALITY_UNSPECIFIED);
 
-            boolean patternLockOn = android.provider.Settings.System.getInt(
-                    cr,Settings.Secure.LOCK_PATTERN_ENABLED, 0)==1;
+            boolean patternLockOn = inputs.getSystemInt(
+                    Settings.Secure.LOCK_PATTERN_ENABLED, 0)==1;
 
-            KeyguardManager kgm = (KeyguardManager)context.getSystemService(Context.KEYGUARD_SERVICE);
-            boolean pinLockOn = kgm.isKeyguardSecure();
+            boolean pinLockOn = inputs.isKeyguardSecure();
 
             /* LEGACY */
             if (pwMode == DevicePolicyManager.PASSWORD_QUALITY_ALPHABETIC ||
@@ -147,21 +414,29 @@ public class SecurityChecklist {
                 return R.drawable.ic_action_cancel;
             }
         }
+
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.secure_lock_screen_good) {
+                return Outcome.PASS;
+            } else if (detailsId == R.string.secure_lock_screen_bad) {
+                return Outcome.FAIL;
+            } else {
+                return Outcome.UNKNOWN;
+            }
+        }
     }
 
     private class EncryptionItem extends SecurityItem {
         private EncryptionItem() {
-            super(ENCRYPTION);
+            super(ENCRYPTION, ResultSnapshot.KEY_ENCRYPTION);
             buttonTextId = R.string.encryption_button;
         }
 
         @Override
-        public void update(Context context) {
-            DevicePolicyManager devicePolicyManager =
-                    (DevicePolicyManager) context.getSystemService(Context.DEVICE_POLICY_SERVICE);
-
-            if (Build.VERSION.SDK_INT > Build.VERSION_CODES.HONEYCOMB) {
-                int status = devicePolicyManager.getStorageEncryptionStatus();
+        protected void update(CheckInputs inputs) {
+            if (inputs.getSdkInt() > Build.VERSION_CODES.HONEYCOMB) {
+                int status = inputs.getStorageEncryptionStatus();
                 if (DevicePolicyManager.ENCRYPTION_STATUS_ACTIVE == status) {
                     detailsId = R.string.encryption_good;
                     intentString = null;
@@ -190,61 +465,83 @@ public class SecurityChecklist {
                 return 0;
             }
         }
+
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.encryption_good) {
+                return Outcome.PASS;
+            } else if (detailsId == R.string.encryption_bad) {
+                return Outcome.FAIL;
+            } else if (detailsId == R.string.encryption_unavailable) {
+                return Outcome.UNAVAILABLE;
+            } else {
+                return Outcome.UNKNOWN;
+            }
+        }
     }
 
     private class AntivirusItem extends SecurityItem {
         private Intent intentGetAntivirus;
         // intentOpenAntivirus should be null if an antivirus is not installed
         private Intent intentOpenAntivirus;
-        private Context context;
+        private String installedPackage;
+        private boolean playStoreAvailable;
 
         private AntivirusItem() {
-            super(ANTIVIRUS);
-            intentGetAntivirus = new Intent(Intent.ACTION_VIEW);
-            intentGetAntivirus.setData(Uri.parse("market://details?id=" + PACKAGE_LOOKOUT));
-            // intentGetAntivirus.setData(Uri.parse("market://details?id=" + PACKAGE_AVAST));
+            super(ANTIVIRUS, ResultSnapshot.KEY_ANTIVIRUS);
         }
 
         public Intent getIntent() {
             if (intentOpenAntivirus == null) {
-                return (isPlayStoreAvailable()) ? intentGetAntivirus : null;
+                if (!playStoreAvailable) {
+                    return null;
+                }
+                if (intentGetAntivirus == null) {
+                    intentGetAntivirus = new Intent(Intent.ACTION_VIEW);
+                    intentGetAntivirus.setData(Uri.parse("market://details?id=" + PACKAGE_LOOKOUT));
+                    // intentGetAntivirus.setData(Uri.parse("market://details?id=" + PACKAGE_AVAST));
+                }
+                return intentGetAntivirus;
             } else {
                 return intentOpenAntivirus;
             }
         }
 
-        private boolean isPlayStoreAvailable() {
-            return (context != null
-                    && intentGetAntivirus.resolveActivity(context.getPackageManager()) != null);
-        }
-
         /**
-         * Sets intentOpenAntivirus to null if an antivirus is not installed.
+         * Sets intentOpenAntivirus to null if an antivirus is not installed. The launch intent
+         * is only looked up again when the installed antivirus changes.
          */
         @Override
-        public void update(Context context) {
-            this.context = context;
-            if (isAppInstalled(context, PACKAGE_AVAST)) {
+        protected void update(CheckInputs inputs) {
+            playStoreAvailable = inputs.isPlayStoreAvailable();
+            if (inputs.isPackageInstalled(PACKAGE_AVAST)) {
                 detailsId = R.string.antivirus_good;
                 buttonTextId = R.string.antivirus_avast_open;
-                intentOpenAntivirus = context.getPackageManager()
-                        .getLaunchIntentForPackage(PACKAGE_AVAST);
-            } else if (isAppInstalled(context, PACKAGE_LOOKOUT)) {
+                setInstalledPackage(inputs, PACKAGE_AVAST);
+            } else if (inputs.isPackageInstalled(PACKAGE_LOOKOUT)) {
                 detailsId = R.string.antivirus_good;
                 buttonTextId = R.string.antivirus_lookout_open;
-                intentOpenAntivirus = context.getPackageManager()
-                        .getLaunchIntentForPackage(PACKAGE_LOOKOUT);
+                setInstalledPackage(inputs, PACKAGE_LOOKOUT);
             } else {
-                if (isPlayStoreAvailable()) {
+                setInstalledPackage(inputs, null);
+                if (playStoreAvailable) {
                     detailsId = R.string.antivirus_bad;
                     buttonTextId = R.string.antivirus_get;
-                    intentOpenAntivirus = null;
                 } else {
                     detailsId = R.string.antivirus_unavailable;
                 }
             }
         }
 
+        private void setInstalledPackage(CheckInputs inputs, String packageName) {
+            if (packageName == null) {
+                intentOpenAntivirus = null;
+            } else if (!packageName.equals(installedPackage) || intentOpenAntivirus == null) {
+                intentOpenAntivirus = inputs.getLaunchIntent(packageName);
+            }
+            installedPackage = packageName;
+        }
+
         @Override
         public int getIconResource() {
             if (detailsId == R.string.antivirus_good) {
@@ -255,50 +552,65 @@ public class SecurityChecklist {
                 return R.drawable.ic_action_warning;
             }
         }
+
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.antivirus_good) {
+                return Outcome.PASS;
+            } else if (detailsId == R.string.antivirus_bad) {
+                return Outcome.FAIL;
+            } else if (detailsId == R.string.antivirus_unavailable) {
+                return Outcome.UNAVAILABLE;
+            } else {
+                return Outcome.UNKNOWN;
+            }
+        }
     }
 
     private class RemoteControlItem extends SecurityItem {
         private Intent intentGetAdm;
         // intentOpenAdm should be null if Android Device Manager is not installed
         private Intent intentOpenAdm;
-        private Context context;
+        private boolean playStoreAvailable;
 
         private RemoteControlItem() {
-            super(REMOTE_CONTROL);
-            intentGetAdm = new Intent(Intent.ACTION_VIEW);
-            intentGetAdm.setData(Uri.parse("market://details?id=" + PACKAGE_DEVICE_MANAGER));
+            super(REMOTE_CONTROL, ResultSnapshot.KEY_REMOTE_CONTROL);
         }
 
         public Intent getIntent() {
             if (intentOpenAdm == null) {
                 // Open ADM Play Store page if Play Store is available; null if Play is unavailable
-                return (isPlayStoreAvailable()) ? intentGetAdm : null;
+                if (!playStoreAvailable) {
+                    return null;
+                }
+                if (intentGetAdm == null) {
+                    intentGetAdm = new Intent(Intent.ACTION_VIEW);
+                    intentGetAdm.setData(Uri.parse("market://details?id=" + PACKAGE_DEVICE_MANAGER));
+                }
+                return intentGetAdm;
             } else {
                 return intentOpenAdm;
             }
         }
 
-        private boolean isPlayStoreAvailable() {
-            return (context != null
-                    && intentGetAdm.resolveActivity(context.getPackageManager()) != null);
-        }
-
         /**
-         * Sets intentOpenAdm to null if Android Device Manager is not installed.
+         * Sets intentOpenAdm to null if Android Device Manager is not installed. The launch
+         * intent is only looked up when Android Device Manager becomes installed.
          */
         @Override
-        public void update(Context context) {
-            this.context = context;
-            if (isAppInstalled(context, PACKAGE_DEVICE_MANAGER)) {
+        protected void update(CheckInputs inputs) {
+            playStoreAvailable = inputs.isPlayStoreAvailable();
+            if (inputs.isPackageInstalled(PACKAGE_DEVICE_MANAGER)) {
                 detailsId = R.string.remote_control_good;
                 buttonTextId = R.string.remote_control_open;
-                intentOpenAdm = context.getPackageManager()
-                        .getLaunchIntentForPackage(PACKAGE_DEVICE_MANAGER);
+                if (intentOpenAdm == null) {
+                    intentOpenAdm = inputs.getLaunchIntent(PACKAGE_DEVICE_MANAGER);
+                }
             } else {
-                if (isPlayStoreAvailable()) {
+                intentOpenAdm = null;
+                if (playStoreAvailable) {
                     detailsId = R.string.remote_control_bad;
                     buttonTextId = R.string.remote_control_get;
-                    intentOpenAdm = null;
                 } else {
                     detailsId = R.string.remote_control_unavailable;
                 }
@@ -315,33 +627,41 @@ public class SecurityChecklist {
                 return R.drawable.ic_action_warning;
             }
         }
+
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.remote_control_good) {
+                return Outcome.PASS;
+            } else if (detailsId == R.string.remote_control_bad) {
+                return Outcome.FAIL;
+            } else if (detailsId == R.string.remote_control_unavailable) {
+                return Outcome.UNAVAILABLE;
+            } else {
+                return Outcome.UNKNOWN;
+            }
+        }
     }
 
     private class LocationItem extends SecurityItem {
         private LocationItem() {
-            super(LOCATION);
+            super(LOCATION, ResultSnapshot.KEY_LOCATION);
             buttonTextId = R.string.location_button;
             intentString = Settings.ACTION_LOCATION_SOURCE_SETTINGS;
         }
 
         @Override
-        public void update(Context context) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-                // KitKat and above
-                int locationMode = Settings.Secure.LOCATION_MODE_OFF;
-                try {
-                    locationMode = Settings.Secure.getInt(context.getContentResolver(),
-                                                          Settings.Secure.LOCATION_MODE);
-                } catch (Settings.SettingNotFoundException e) {
-                    e.printStackTrace();
-                }
+        protected void update(CheckInputs inputs) {
+            if (inputs.getSdkInt() >= Build.VERSION_CODES.KITKAT) {
+                // KitKat and above; a missing setting counts as off
+                int locationMode = inputs.getSecureInt(Settings.Secure.LOCATION_MODE,
+                                                       Settings.Secure.LOCATION_MODE_OFF);
                 detailsId = (locationMode != Settings.Secure.LOCATION_MODE_OFF) ?
                              R.string.location_on : R.string.location_off;
             } else {
                 // before KitKat
-                String locationProviders = Settings.Secure.getString(
-                        context.getContentResolver(), Settings.Secure.LOCATION_PROVIDERS_ALLOWED);
-                detailsId = (!TextUtils.isEmpty(locationProviders)) ?  // TODO: is TextUtils necessary?
+                String locationProviders = inputs.getSecureString(
+                        Settings.Secure.LOCATION_PROVIDERS_ALLOWED);
+                detailsId = (locationProviders != null && locationProviders.length() > 0) ?
                              R.string.location_on : R.string.location_off;
             }
         }
@@ -356,24 +676,33 @@ public class SecurityChecklist {
                 return 0;
             }
         }
+
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.location_on) {
+                return Outcome.ENABLED;
+            } else if (detailsId == R.string.location_off) {
+                return Outcome.DISABLED;
+            } else {
+                return Outcome.UNKNOWN;
+            }
+        }
     }
 
     protected class SimLockItem extends SecurityItem {
         private SimLockItem() {
-            super(SIM_LOCK);
+            super(SIM_LOCK, ResultSnapshot.KEY_SIM_LOCK);
             buttonTextId = R.string.sim_button;
             intentString = Settings.ACTION_SECURITY_SETTINGS;
             // TODO: investigate SIM lock settings intent
         }
 
         @Override
-        public void update(Context context) {
-            TelephonyManager telMgr =
-                    (TelephonyManager) context.getSystemService(Context.TELEPHONY_SERVICE);
-            if (telMgr.getPhoneType() != TelephonyManager.PHONE_TYPE_GSM) {
+        protected void update(CheckInputs inputs) {
+            if (inputs.getPhoneType() != TelephonyManager.PHONE_TYPE_GSM) {
                 detailsId = R.string.sim_lock_not_gsm;
             } else {
-                int simState = telMgr.getSimState();
+                int simState = inputs.getSimState();
                 switch (simState) {
                     case TelephonyManager.SIM_STATE_NETWORK_LOCKED:
                     case TelephonyManager.SIM_STATE_PIN_REQUIRED:
@@ -396,16 +725,18 @@ public class SecurityChecklist {
                 return 0;
             }
         }
-    }
 
-    private static boolean isAppInstalled(Context context, String target) {
-        PackageManager packageManager = context.getPackageManager();
-        List<ApplicationInfo> apps = packageManager.getInstalledApplications(0);
-        for (ApplicationInfo app : apps) {
-            if (app.packageName.equals(target)) {
-                return true;
+        @Override
+        public Outcome getOutcome() {
+            if (detailsId == R.string.sim_lock_good) {
+                return Outcome.PASS;
+            } else if (detailsId == R.string.sim_lock_bad) {
+                return Outcome.FAIL;
+            } else if (detailsId == R.string.sim_lock_not_gsm) {
+                return Outcome.NOT_APPLICABLE;
+            } else {
+                return Outcome.UNKNOWN;
             }
         }
-        return false;
     }
 }
@@ -0,0 +1,51 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+/**
+ * Keeps the latest {@link ResultSnapshot} across process restarts, so that
+ * surfaces such as the home-screen widget can show it without running a
+ * checklist pass of their own.
+ */
+public class SnapshotStore {
+    private static final String PREFS_NAME = "result_snapshot";
+    private static final String KEY_TIMESTAMP = "timestamp";
+    private static final String KEY_PACKED = "packed";
+
+    private SnapshotStore() {
+    }
+
+    /**
+     * Saves the snapshot asynchronously where the platform allows it.
+     */
+    @TargetApi(Build.VERSION_CODES.GINGERBREAD)
+    public static void save(Context context, ResultSnapshot snapshot) {
+        SharedPreferences.Editor editor = getPreferences(context).edit()
+                .putLong(KEY_TIMESTAMP, snapshot.getTimestamp())
+                .putInt(KEY_PACKED, snapshot.getPacked());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD) {
+            editor.apply();
+        } else {
+            editor.commit();
+        }
+    }
+
+    /**
+     * @return the stored snapshot; null if no checklist pass has completed yet
+     */
+    public static ResultSnapshot load(Context context) {
+        SharedPreferences preferences = getPreferences(context);
+        if (!preferences.contains(KEY_PACKED)) {
+            return null;
+        }
+        return new ResultSnapshot(preferences.getLong(KEY_TIMESTAMP, 0),
+                preferences.getInt(KEY_PACKED, 0));
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
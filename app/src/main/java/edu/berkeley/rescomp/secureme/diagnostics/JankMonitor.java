@@ -0,0 +1,374 @@
+package edu.berkeley.rescomp.secureme.diagnostics;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.util.Log;
+import android.view.Choreographer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Opt-in instrumentation of main-thread work in the list and detail
+ * screens. It records how long each instrumented lifecycle callback blocks
+ * the main thread and, on Jelly Bean and above, how many frames are dropped
+ * while each screen is visible. When disabled, callbacks are not timed and
+ * frames are not tracked, but which screens are visible is still followed, so
+ * frames are counted from the moment the monitor is turned on.
+ * <p/>
+ * Typical use around a callback:
+ * <pre>
+ * long start = JankMonitor.begin();
+ * ...
+ * JankMonitor.end(JankMonitor.LIST_GET_VIEW, start);
+ * </pre>
+ * All methods must be called from the main thread, except {@link #getSummary},
+ * the counter getters and {@link #reset}.
+ */
+public class JankMonitor {
+    private static final String TAG = "JankMonitor";
+
+    public static final String LIST_ACTIVITY_ON_RESUME = "ItemListActivity.onResume";
+    public static final String LIST_ON_RESUME = "ItemListFragment.onResume";
+    public static final String LIST_GET_VIEW = "ItemListFragment.getView";
+    public static final String DETAIL_ON_CREATE_VIEW = "ItemDetailFragment.onCreateView";
+    public static final String DETAIL_ON_RESUME = "ItemDetailFragment.onResume";
+
+    public static final String SCREEN_LIST = "ItemListFragment";
+    public static final String SCREEN_DETAIL = "ItemDetailFragment";
+
+    /**
+     * Duration of one frame at 60 fps; callbacks longer than this are counted as slow.
+     */
+    private static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static volatile boolean sEnabled;
+
+    private static final List<CallbackStats> sCallbacks = new ArrayList<CallbackStats>();
+    private static final List<ScreenStats> sScreens = new ArrayList<ScreenStats>();
+    private static int sVisibleScreens;
+    private static FrameTracker sFrameTracker;
+
+    private JankMonitor() {
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Turns recording on or off. Statistics gathered so far are kept until {@link #reset}.
+     * Turning it on while a screen is visible starts counting that screen's frames at once.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+        if (!enabled) {
+            stopFrameTracking();
+            return;
+        }
+        boolean anyVisible;
+        synchronized (JankMonitor.class) {
+            anyVisible = sVisibleScreens > 0;
+        }
+        if (anyVisible) {
+            startFrameTracking();
+        }
+    }
+
+    /**
+     * @return start time to pass to {@link #end}; 0 when disabled
+     */
+    public static long begin() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    public static void end(String callback, long start) {
+        if (start == 0 || !sEnabled) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        synchronized (JankMonitor.class) {
+            CallbackStats stats = getCallbackStats(callback);
+            stats.count++;
+            stats.totalNanos += duration;
+            if (duration > stats.maxNanos) {
+                stats.maxNanos = duration;
+            }
+            if (duration > FRAME_INTERVAL_NANOS) {
+                stats.slowCount++;
+            }
+        }
+    }
+
+    /**
+     * Marks a screen as visible, e.g. from onResume; dropped frames are attributed to every
+     * visible screen. Followed even while disabled.
+     */
+    public static void screenShown(String screen) {
+        boolean start;
+        synchronized (JankMonitor.class) {
+            ScreenStats stats = getScreenStats(screen);
+            if (stats.visible) {
+                return;
+            }
+            stats.visible = true;
+            start = (sVisibleScreens++ == 0) && sEnabled;
+        }
+        if (start) {
+            startFrameTracking();
+        }
+    }
+
+    /**
+     * Marks a screen as no longer visible, e.g. from onPause. Followed even while disabled.
+     */
+    public static void screenHidden(String screen) {
+        boolean stop;
+        synchronized (JankMonitor.class) {
+            ScreenStats stats = getScreenStats(screen);
+            if (!stats.visible) {
+                return;
+            }
+            stats.visible = false;
+            stop = (--sVisibleScreens == 0);
+        }
+        if (stop) {
+            stopFrameTracking();
+        }
+    }
+
+    public static synchronized void reset() {
+        for (int i = 0, size = sCallbacks.size(); i < size; i++) {
+            sCallbacks.get(i).clear();
+        }
+        for (int i = 0, size = sScreens.size(); i < size; i++) {
+            sScreens.get(i).clear();
+        }
+    }
+
+    /**
+     * @return number of timed runs of the callback since the last {@link #reset}
+     */
+    public static synchronized int getCallbackCount(String callback) {
+        CallbackStats stats = findCallbackStats(callback);
+        return (stats == null) ? 0 : stats.count;
+    }
+
+    /**
+     * @return number of runs of the callback that took longer than one frame
+     */
+    public static synchronized int getSlowCallbackCount(String callback) {
+        CallbackStats stats = findCallbackStats(callback);
+        return (stats == null) ? 0 : stats.slowCount;
+    }
+
+    public static synchronized long getCallbackTotalNanos(String callback) {
+        CallbackStats stats = findCallbackStats(callback);
+        return (stats == null) ? 0 : stats.totalNanos;
+    }
+
+    public static synchronized long getCallbackMaxNanos(String callback) {
+        CallbackStats stats = findCallbackStats(callback);
+        return (stats == null) ? 0 : stats.maxNanos;
+    }
+
+    public static synchronized boolean isScreenVisible(String screen) {
+        ScreenStats stats = findScreenStats(screen);
+        return stats != null && stats.visible;
+    }
+
+    /**
+     * @return number of frames drawn while the screen was visible and the monitor enabled
+     */
+    public static synchronized long getFrameCount(String screen) {
+        ScreenStats stats = findScreenStats(screen);
+        return (stats == null) ? 0 : stats.frames;
+    }
+
+    public static synchronized long getDroppedFrameCount(String screen) {
+        ScreenStats stats = findScreenStats(screen);
+        return (stats == null) ? 0 : stats.droppedFrames;
+    }
+
+    /**
+     * @return human-readable summary of everything recorded since the last {@link #reset}
+     */
+    public static synchronized String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0, size = sCallbacks.size(); i < size; i++) {
+            CallbackStats stats = sCallbacks.get(i);
+            summary.append(stats.name)
+                    .append(": count=").append(stats.count)
+                    .append(" avg=").append(toMillis(stats.count == 0 ? 0
+                            : stats.totalNanos / stats.count))
+                    .append("ms max=").append(toMillis(stats.maxNanos))
+                    .append("ms slow=").append(stats.slowCount)
+                    .append('\n');
+        }
+        for (int i = 0, size = sScreens.size(); i < size; i++) {
+            ScreenStats stats = sScreens.get(i);
+            summary.append(stats.name)
+                    .append(": frames=").append(stats.frames)
+                    .append(" dropped=").append(stats.droppedFrames)
+                    .append('\n');
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Writes the summary to the log.
+     */
+    public static void dump() {
+        Log.i(TAG, getSummary());
+    }
+
+    private static String toMillis(long nanos) {
+        return String.valueOf(nanos / (NANOS_PER_MILLI / 100) / 100.0);
+    }
+
+    private static CallbackStats findCallbackStats(String name) {
+        for (int i = 0, size = sCallbacks.size(); i < size; i++) {
+            CallbackStats stats = sCallbacks.get(i);
+            if (stats.name.equals(name)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    private static CallbackStats getCallbackStats(String name) {
+        CallbackStats stats = findCallbackStats(name);
+        if (stats == null) {
+            stats = new CallbackStats(name);
+            sCallbacks.add(stats);
+        }
+        return stats;
+    }
+
+    private static ScreenStats findScreenStats(String name) {
+        for (int i = 0, size = sScreens.size(); i < size; i++) {
+            ScreenStats stats = sScreens.get(i);
+            if (stats.name.equals(name)) {
+                return stats;
+            }
+        }
+        return null;
+    }
+
+    private static ScreenStats getScreenStats(String name) {
+        ScreenStats stats = findScreenStats(name);
+        if (stats == null) {
+            stats = new ScreenStats(name);
+            sScreens.add(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * Attributes one frame to every visible screen; called by the frame tracker.
+     *
+     * @param frameNanos time since the previous frame
+     */
+    static synchronized void onFrame(long frameNanos) {
+        // a frame that took n intervals means n - 1 frames were skipped
+        long dropped = (frameNanos + FRAME_INTERVAL_NANOS / 2) / FRAME_INTERVAL_NANOS - 1;
+        for (int i = 0, size = sScreens.size(); i < size; i++) {
+            ScreenStats stats = sScreens.get(i);
+            if (stats.visible) {
+                stats.frames++;
+                if (dropped > 0) {
+                    stats.droppedFrames += dropped;
+                }
+            }
+        }
+    }
+
+    private static void startFrameTracking() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            if (sFrameTracker == null) {
+                sFrameTracker = new FrameTracker();
+            }
+            sFrameTracker.start();
+        }
+    }
+
+    private static void stopFrameTracking() {
+        if (sFrameTracker != null) {
+            sFrameTracker.stop();
+        }
+    }
+
+    private static class CallbackStats {
+        final String name;
+        int count;
+        int slowCount;
+        long totalNanos;
+        long maxNanos;
+
+        CallbackStats(String name) {
+            this.name = name;
+        }
+
+        void clear() {
+            count = 0;
+            slowCount = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+        }
+    }
+
+    private static class ScreenStats {
+        final String name;
+        boolean visible;
+        long frames;
+        long droppedFrames;
+
+        ScreenStats(String name) {
+            this.name = name;
+        }
+
+        void clear() {
+            frames = 0;
+            droppedFrames = 0;
+        }
+    }
+
+    /**
+     * Measures the time between consecutive frames while any screen is visible. Only
+     * loaded on Jelly Bean and above, where {@link Choreographer} exists.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class FrameTracker implements Choreographer.FrameCallback {
+        private boolean running;
+        private long lastFrameNanos;
+
+        void start() {
+            if (!running) {
+                running = true;
+                lastFrameNanos = 0;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        void stop() {
+            if (running) {
+                running = false;
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            if (lastFrameNanos != 0) {
+                onFrame(frameTimeNanos - lastFrameNanos);
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
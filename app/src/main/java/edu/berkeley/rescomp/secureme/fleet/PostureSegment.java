@@ -0,0 +1,244 @@
+package edu.berkeley.rescomp.secureme.fleet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+
+/**
+ * One immutable, memory-mapped segment of fleet posture records, stored
+ * column by column: device ids, timestamps, then one byte of outcome id per
+ * security item. The header carries min/max statistics so that scans can
+ * skip a whole segment, and columns are read in place, never as records.
+ * <p/>
+ * Layout, big-endian:
+ * <pre>
+ * int magic, int version, int rowCount, int checkCount
+ * long minDeviceId, long maxDeviceId, long minTimestamp, long maxTimestamp
+ * per check: byte minOutcome, byte maxOutcome, short outcomeMask
+ * long[rowCount] deviceIds
+ * long[rowCount] timestamps
+ * per check: byte[rowCount] outcome ids
+ * </pre>
+ */
+public final class PostureSegment {
+    static final int MAGIC = 0x534d4353; // "SMCS"
+    static final int VERSION = 1;
+
+    private static final int FIXED_HEADER_SIZE = 4 * 4 + 4 * 8;
+    private static final int CHECK_STATS_SIZE = 4;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int rowCount;
+    private final int checkCount;
+    private final long minDeviceId;
+    private final long maxDeviceId;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int deviceIdOffset;
+    private final int timestampOffset;
+    private final int checkOffset;
+
+    private PostureSegment(File file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.capacity() < FIXED_HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a posture segment: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported posture segment version " + version + ": " + file);
+        }
+        rowCount = buffer.getInt(8);
+        checkCount = buffer.getInt(12);
+        // a corrupt header must not yield offsets outside the mapping, so sizes are
+        // checked in long before any offset is narrowed to int
+        if (rowCount < 0 || checkCount < 0
+                || size(checkCount, rowCount) > buffer.capacity()) {
+            throw new IOException("Truncated or corrupt posture segment: " + file);
+        }
+        minDeviceId = buffer.getLong(16);
+        maxDeviceId = buffer.getLong(24);
+        minTimestamp = buffer.getLong(32);
+        maxTimestamp = buffer.getLong(40);
+        deviceIdOffset = (int) headerSize(checkCount);
+        timestampOffset = (int) (deviceIdOffset + 8L * rowCount);
+        checkOffset = (int) (timestampOffset + 8L * rowCount);
+    }
+
+    /**
+     * Maps a segment file read-only. The mapping stays valid after the file is closed.
+     */
+    public static PostureSegment open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new PostureSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the first {@code rowCount} rows of the given columns as a new segment file.
+     *
+     * @param checks one column of outcome ids per security item
+     */
+    static void write(File file, long[] deviceIds, long[] timestamps, byte[][] checks,
+                      int rowCount) throws IOException {
+        int checkCount = checks.length;
+        if (rowCount < 0 || rowCount > maxRows(checkCount)) {
+            throw new IllegalArgumentException("Too many rows for one segment: " + rowCount);
+        }
+        ByteBuffer out = ByteBuffer.allocate((int) size(checkCount, rowCount));
+
+        out.putInt(MAGIC).putInt(VERSION).putInt(rowCount).putInt(checkCount);
+        long minDeviceId = Long.MAX_VALUE, maxDeviceId = Long.MIN_VALUE;
+        long minTimestamp = Long.MAX_VALUE, maxTimestamp = Long.MIN_VALUE;
+        for (int row = 0; row < rowCount; row++) {
+            minDeviceId = Math.min(minDeviceId, deviceIds[row]);
+            maxDeviceId = Math.max(maxDeviceId, deviceIds[row]);
+            minTimestamp = Math.min(minTimestamp, timestamps[row]);
+            maxTimestamp = Math.max(maxTimestamp, timestamps[row]);
+        }
+        out.putLong(minDeviceId).putLong(maxDeviceId).putLong(minTimestamp).putLong(maxTimestamp);
+        for (byte[] column : checks) {
+            int min = Byte.MAX_VALUE, max = 0, mask = 0;
+            for (int row = 0; row < rowCount; row++) {
+                min = Math.min(min, column[row]);
+                max = Math.max(max, column[row]);
+                mask |= 1 << column[row];
+            }
+            out.put((byte) min).put((byte) max).putShort((short) mask);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            out.putLong(deviceIds[row]);
+        }
+        for (int row = 0; row < rowCount; row++) {
+            out.putLong(timestamps[row]);
+        }
+        for (byte[] column : checks) {
+            out.put(column, 0, rowCount);
+        }
+        out.flip();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the most rows a segment with the given number of checks can hold, as it is
+     * mapped and indexed with int offsets
+     */
+    static int maxRows(int checkCount) {
+        return (int) ((Integer.MAX_VALUE - headerSize(checkCount)) / (16 + checkCount));
+    }
+
+    private static long size(int checkCount, int rowCount) {
+        return headerSize(checkCount) + (16L + checkCount) * rowCount;
+    }
+
+    private static long headerSize(int checkCount) {
+        return FIXED_HEADER_SIZE + (long) CHECK_STATS_SIZE * checkCount;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getCheckCount() {
+        return checkCount;
+    }
+
+    public long getMinDeviceId() {
+        return minDeviceId;
+    }
+
+    public long getMaxDeviceId() {
+        return maxDeviceId;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    /**
+     * @return whether any row may fall in the inclusive time range
+     */
+    public boolean overlaps(long from, long to) {
+        return rowCount > 0 && minTimestamp <= to && maxTimestamp >= from;
+    }
+
+    /**
+     * @return whether every row falls in the inclusive time range
+     */
+    public boolean within(long from, long to) {
+        return minTimestamp >= from && maxTimestamp <= to;
+    }
+
+    public int getMinOutcome(int check) {
+        return (check >= checkCount) ? Outcome.UNKNOWN.getId() : buffer.get(checkStatsOffset(check));
+    }
+
+    public int getMaxOutcome(int check) {
+        return (check >= checkCount)
+                ? Outcome.UNKNOWN.getId() : buffer.get(checkStatsOffset(check) + 1);
+    }
+
+    /**
+     * @return whether any row has the given outcome for the given check
+     */
+    public boolean mayContain(int check, Outcome outcome) {
+        if (check >= checkCount) {
+            // segments written before the check existed only hold unknown outcomes
+            return outcome == Outcome.UNKNOWN;
+        }
+        int mask = buffer.getShort(checkStatsOffset(check) + 2) & 0xffff;
+        return (mask & (1 << outcome.getId())) != 0;
+    }
+
+    public long getDeviceId(int row) {
+        return buffer.getLong(deviceIdOffset + 8 * row);
+    }
+
+    public long getTimestamp(int row) {
+        return buffer.getLong(timestampOffset + 8 * row);
+    }
+
+    /**
+     * @return outcome id of the given check in the given row; {@link Outcome#UNKNOWN}'s id if
+     * the segment predates the check
+     */
+    public int getOutcomeId(int check, int row) {
+        if (check >= checkCount) {
+            return Outcome.UNKNOWN.getId();
+        }
+        return buffer.get(checkOffset + check * rowCount + row);
+    }
+
+    private int checkStatsOffset(int check) {
+        return FIXED_HEADER_SIZE + CHECK_STATS_SIZE * check;
+    }
+}
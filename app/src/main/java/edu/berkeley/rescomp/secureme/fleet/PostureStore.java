@@ -0,0 +1,251 @@
+package edu.berkeley.rescomp.secureme.fleet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+import edu.berkeley.rescomp.secureme.policy.Compliance;
+import edu.berkeley.rescomp.secureme.policy.DecisionTable;
+
+/**
+ * Fleet-wide posture history as a directory of append-only
+ * {@link PostureSegment}s. Appended records are buffered in columns and
+ * written out as a new segment once {@code segmentRows} have accumulated or
+ * on {@link #flush}; existing segments are never modified. Scans go through
+ * the memory-mapped segments, skip those whose statistics rule them out, and
+ * only touch the columns they need.
+ * <p/>
+ * Check indexes are the slots of {@link ResultSnapshot#KEYS}.
+ */
+public class PostureStore {
+    public static final int DEFAULT_SEGMENT_ROWS = 1 << 16;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_EXTENSION = ".smcs";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File dir;
+    private final int segmentRows;
+    private final List<PostureSegment> segments = new ArrayList<PostureSegment>();
+
+    private final long[] deviceIds;
+    private final long[] timestamps;
+    private final byte[][] checks;
+    private int pendingRows;
+    private int nextSegment;
+
+    public PostureStore(File dir) throws IOException {
+        this(dir, DEFAULT_SEGMENT_ROWS);
+    }
+
+    /**
+     * Opens the store in the given directory, mapping every existing segment. Segments left
+     * half-written by an interrupted {@link #flush} are deleted, and files whose names do not
+     * follow the segment pattern are ignored.
+     */
+    public PostureStore(File dir, int segmentRows) throws IOException {
+        if (segmentRows <= 0) {
+            throw new IllegalArgumentException("segmentRows must be positive");
+        }
+        if (segmentRows > PostureSegment.maxRows(ResultSnapshot.SIZE)) {
+            throw new IllegalArgumentException("segmentRows too large for one segment: "
+                    + segmentRows);
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        this.dir = dir;
+        this.segmentRows = segmentRows;
+        deviceIds = new long[segmentRows];
+        timestamps = new long[segmentRows];
+        checks = new byte[ResultSnapshot.SIZE][segmentRows];
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            throw new IOException("Could not list " + dir);
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SEGMENT_EXTENSION + TEMP_EXTENSION)
+                    && getSegmentNumber(name.substring(0,
+                            name.length() - TEMP_EXTENSION.length())) >= 0) {
+                if (!file.delete()) {
+                    throw new IOException("Could not delete " + file);
+                }
+                continue;
+            }
+            int number = getSegmentNumber(name);
+            if (number >= 0) {
+                segments.add(PostureSegment.open(file));
+                nextSegment = Math.max(nextSegment, number + 1);
+            }
+        }
+    }
+
+    /**
+     * @return the number in a segment file name; -1 if the name is not one of a segment
+     */
+    private static int getSegmentNumber(String name) {
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_EXTENSION)) {
+            return -1;
+        }
+        String digits = name.substring(SEGMENT_PREFIX.length(),
+                name.length() - SEGMENT_EXTENSION.length());
+        if (digits.length() == 0 || digits.length() > 9) {
+            return -1;
+        }
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(digits);
+    }
+
+    /**
+     * @return the segments written so far, oldest first
+     */
+    public List<PostureSegment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    public void append(long deviceId, ResultSnapshot snapshot) throws IOException {
+        append(deviceId, snapshot.getTimestamp(), snapshot.getPacked());
+    }
+
+    /**
+     * Buffers one record, writing out a segment when the buffer is full.
+     *
+     * @param packedOutcomes outcomes packed as in {@link ResultSnapshot#getPacked}
+     */
+    public void append(long deviceId, long timestamp, int packedOutcomes) throws IOException {
+        deviceIds[pendingRows] = deviceId;
+        timestamps[pendingRows] = timestamp;
+        for (int check = 0; check < checks.length; check++) {
+            checks[check][pendingRows] =
+                    (byte) ResultSnapshot.unpack(packedOutcomes, check).getId();
+        }
+        if (++pendingRows == segmentRows) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes any buffered records out as a new segment. Buffered records are not visible to
+     * scans until flushed.
+     */
+    public void flush() throws IOException {
+        if (pendingRows == 0) {
+            return;
+        }
+        String name = String.format(Locale.US, "%s%08d%s",
+                SEGMENT_PREFIX, nextSegment, SEGMENT_EXTENSION);
+        // written under a temporary name first so a crash never leaves a partial segment
+        File temp = new File(dir, name + TEMP_EXTENSION);
+        File file = new File(dir, name);
+        PostureSegment.write(temp, deviceIds, timestamps, checks, pendingRows);
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not rename " + temp + " to " + file);
+        }
+        segments.add(PostureSegment.open(file));
+        nextSegment++;
+        pendingRows = 0;
+    }
+
+    /**
+     * Counts the outcomes of one check over an inclusive time range.
+     *
+     * @param counts receives the number of rows per outcome id; must hold
+     *               {@code 1 << Outcome.BITS} entries
+     */
+    public void countOutcomes(int check, long from, long to, long[] counts) {
+        for (int i = 0, size = segments.size(); i < size; i++) {
+            PostureSegment segment = segments.get(i);
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            int rows = segment.getRowCount();
+            if (segment.within(from, to)) {
+                // the timestamp column is not needed at all
+                for (int row = 0; row < rows; row++) {
+                    counts[segment.getOutcomeId(check, row)]++;
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    long timestamp = segment.getTimestamp(row);
+                    if (timestamp >= from && timestamp <= to) {
+                        counts[segment.getOutcomeId(check, row)]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts, per time bucket, the rows in which a check had the given outcome and the rows
+     * overall, e.g. for an encryption pass rate by week.
+     *
+     * @param matches receives the number of matching rows per bucket
+     * @param totals  receives the number of rows per bucket
+     */
+    public void countByBucket(int check, Outcome outcome, long from, long bucketMillis,
+                              long[] matches, long[] totals) {
+        long to = from + bucketMillis * totals.length - 1;
+        int id = outcome.getId();
+        for (int i = 0, size = segments.size(); i < size; i++) {
+            PostureSegment segment = segments.get(i);
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            // without the outcome in the segment, only the timestamp column is read
+            boolean mayMatch = segment.mayContain(check, outcome);
+            for (int row = 0, rows = segment.getRowCount(); row < rows; row++) {
+                long timestamp = segment.getTimestamp(row);
+                if (timestamp < from || timestamp > to) {
+                    continue;
+                }
+                int bucket = (int) ((timestamp - from) / bucketMillis);
+                totals[bucket]++;
+                if (mayMatch && segment.getOutcomeId(check, row) == id) {
+                    matches[bucket]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates every row in an inclusive time range against a policy profile.
+     *
+     * @param counts receives the number of rows per {@link Compliance} ordinal
+     */
+    public void countCompliance(DecisionTable table, long from, long to, long[] counts) {
+        for (int i = 0, size = segments.size(); i < size; i++) {
+            PostureSegment segment = segments.get(i);
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            boolean within = segment.within(from, to);
+            for (int row = 0, rows = segment.getRowCount(); row < rows; row++) {
+                if (!within) {
+                    long timestamp = segment.getTimestamp(row);
+                    if (timestamp < from || timestamp > to) {
+                        continue;
+                    }
+                }
+                int packed = 0;
+                for (int check = 0; check < ResultSnapshot.SIZE; check++) {
+                    packed |= segment.getOutcomeId(check, row) << (check * Outcome.BITS);
+                }
+                counts[table.evaluate(packed).ordinal()]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package edu.berkeley.rescomp.secureme.policy;
+
+/**
+ * Result of evaluating checklist outcomes against a {@link PolicyProfile}.
+ */
+public enum Compliance {
+    /**
+     * Every required and advisory item is satisfied.
+     */
+    COMPLIANT,
+    /**
+     * Every required item is satisfied, but some advisory items are not.
+     */
+    ADVISORY_GAPS,
+    /**
+     * At least one required item is not satisfied.
+     */
+    NON_COMPLIANT
+}
@@ -0,0 +1,91 @@
+package edu.berkeley.rescomp.secureme.policy;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+
+/**
+ * A compiled {@link PolicyProfile}. For every security item it keeps one
+ * bitmask of the outcome ids that satisfy the item, with ignored items
+ * accepting every outcome. Evaluating packed outcomes is then one shift and
+ * mask per item, without allocating, on the device and in bulk alike.
+ */
+public final class DecisionTable {
+    private static final int ALL_OUTCOMES = (1 << (1 << Outcome.BITS)) - 1;
+    private static final int OUTCOME_MASK = (1 << Outcome.BITS) - 1;
+
+    private final String name;
+    private final int[] required = new int[ResultSnapshot.SIZE];
+    private final int[] advisory = new int[ResultSnapshot.SIZE];
+
+    DecisionTable(String name, int[] levels, int[] accepted) {
+        this.name = name;
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            required[i] = (levels[i] == PolicyProfile.REQUIRED) ? accepted[i] : ALL_OUTCOMES;
+            advisory[i] = (levels[i] == PolicyProfile.ADVISORY) ? accepted[i] : ALL_OUTCOMES;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Compliance evaluate(ResultSnapshot snapshot) {
+        return evaluate(snapshot.getPacked());
+    }
+
+    public Compliance evaluate(int packed) {
+        if (gaps(required, packed) != 0) {
+            return Compliance.NON_COMPLIANT;
+        } else if (gaps(advisory, packed) != 0) {
+            return Compliance.ADVISORY_GAPS;
+        }
+        return Compliance.COMPLIANT;
+    }
+
+    /**
+     * @return bitmask of the slots in {@link ResultSnapshot#KEYS} whose required outcome is
+     * not met
+     */
+    public int requiredGaps(int packed) {
+        return gaps(required, packed);
+    }
+
+    /**
+     * @return bitmask of the slots in {@link ResultSnapshot#KEYS} whose advisory outcome is
+     * not met
+     */
+    public int advisoryGaps(int packed) {
+        return gaps(advisory, packed);
+    }
+
+    /**
+     * Evaluates many devices' packed outcomes at once, e.g. in fleet tooling.
+     *
+     * @param results receives the ordinal of the {@link Compliance} of each device
+     * @return number of compliant devices, including those with only advisory gaps
+     */
+    public int evaluateAll(int[] packed, int offset, int count, byte[] results) {
+        int compliant = 0;
+        for (int i = 0; i < count; i++) {
+            Compliance compliance = evaluate(packed[offset + i]);
+            if (results != null) {
+                results[i] = (byte) compliance.ordinal();
+            }
+            if (compliance != Compliance.NON_COMPLIANT) {
+                compliant++;
+            }
+        }
+        return compliant;
+    }
+
+    private static int gaps(int[] table, int packed) {
+        int gaps = 0;
+        for (int slot = 0; slot < ResultSnapshot.SIZE; slot++) {
+            int id = (packed >>> (slot * Outcome.BITS)) & OUTCOME_MASK;
+            if ((table[slot] & (1 << id)) == 0) {
+                gaps |= 1 << slot;
+            }
+        }
+        return gaps;
+    }
+}
@@ -0,0 +1,144 @@
+package edu.berkeley.rescomp.secureme.policy;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+
+/**
+ * An organizational posture, e.g. what staff or contractors must have. Each
+ * security item is either ignored, advisory or required, together with the
+ * outcomes that satisfy it. Profiles are compiled into a {@link DecisionTable}
+ * before being evaluated.
+ */
+public class PolicyProfile {
+    public static final int IGNORED = 0;
+    public static final int ADVISORY = 1;
+    public static final int REQUIRED = 2;
+
+    /**
+     * Outcomes that satisfy an item unless the profile says otherwise. Items that do not
+     * apply to the device, such as a SIM lock on a non-GSM phone, are not held against it.
+     */
+    private static final int DEFAULT_ACCEPTED =
+            (1 << Outcome.PASS.getId()) | (1 << Outcome.NOT_APPLICABLE.getId());
+
+    /**
+     * Location never passes or fails, it is only enabled or disabled; requiring it by
+     * default means having it on, e.g. so a lost device can be found.
+     */
+    private static final int DEFAULT_ACCEPTED_LOCATION = 1 << Outcome.ENABLED.getId();
+
+    private final String name;
+    private final int[] levels = new int[ResultSnapshot.SIZE];
+    private final int[] accepted = new int[ResultSnapshot.SIZE];
+
+    public PolicyProfile(String name) {
+        this.name = name;
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            accepted[i] = getDefaultAccepted(i);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public PolicyProfile require(String key, Outcome... outcomes) {
+        return set(key, REQUIRED, outcomes);
+    }
+
+    public PolicyProfile advise(String key, Outcome... outcomes) {
+        return set(key, ADVISORY, outcomes);
+    }
+
+    /**
+     * @param outcomes outcomes that satisfy the item; none for the default, which is pass or
+     *                 not applicable, or enabled for location
+     */
+    public PolicyProfile set(String key, int level, Outcome... outcomes) {
+        int slot = ResultSnapshot.indexOf(key);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Unknown security item: " + key);
+        }
+        if (level != IGNORED && level != ADVISORY && level != REQUIRED) {
+            throw new IllegalArgumentException("Unknown requirement level: " + level);
+        }
+        levels[slot] = level;
+        if (outcomes.length == 0) {
+            accepted[slot] = getDefaultAccepted(slot);
+        } else {
+            accepted[slot] = 0;
+            for (Outcome outcome : outcomes) {
+                accepted[slot] |= 1 << outcome.getId();
+            }
+        }
+        return this;
+    }
+
+    private static int getDefaultAccepted(int slot) {
+        return (slot == ResultSnapshot.indexOf(ResultSnapshot.KEY_LOCATION))
+                ? DEFAULT_ACCEPTED_LOCATION : DEFAULT_ACCEPTED;
+    }
+
+    public int getLevel(String key) {
+        int slot = ResultSnapshot.indexOf(key);
+        return (slot < 0) ? IGNORED : levels[slot];
+    }
+
+    public DecisionTable compile() {
+        return new DecisionTable(name, levels, accepted);
+    }
+
+    /**
+     * Parses a profile from a comma-separated list of entries such as
+     * {@code encryption=required,antivirus=advisory,location=required:disabled}.
+     * The optional part after the colon lists accepted outcome codes separated by
+     * {@code |}.
+     */
+    public static PolicyProfile parse(String name, String spec) {
+        PolicyProfile profile = new PolicyProfile(name);
+        for (String entry : spec.split(",")) {
+            entry = entry.trim();
+            if (entry.length() == 0) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Malformed policy entry: " + entry);
+            }
+            String key = entry.substring(0, equals).trim();
+            String value = entry.substring(equals + 1).trim();
+            Outcome[] outcomes = new Outcome[0];
+            int colon = value.indexOf(':');
+            if (colon >= 0) {
+                String[] codes = value.substring(colon + 1).split("\\|");
+                outcomes = new Outcome[codes.length];
+                for (int i = 0; i < codes.length; i++) {
+                    outcomes[i] = parseOutcome(codes[i].trim());
+                }
+                value = value.substring(0, colon).trim();
+            }
+            profile.set(key, parseLevel(value), outcomes);
+        }
+        return profile;
+    }
+
+    private static int parseLevel(String value) {
+        if ("required".equals(value)) {
+            return REQUIRED;
+        } else if ("advisory".equals(value)) {
+            return ADVISORY;
+        } else if ("ignored".equals(value)) {
+            return IGNORED;
+        }
+        throw new IllegalArgumentException("Unknown requirement level: " + value);
+    }
+
+    private static Outcome parseOutcome(String code) {
+        for (Outcome outcome : Outcome.values()) {
+            if (outcome.getCode().equals(code)) {
+                return outcome;
+            }
+        }
+        throw new IllegalArgumentException("Unknown outcome: " + code);
+    }
+}
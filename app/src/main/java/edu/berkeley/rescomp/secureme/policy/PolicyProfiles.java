@@ -0,0 +1,34 @@
+package edu.berkeley.rescomp.secureme.policy;
+
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+
+/**
+ * The built-in organizational profiles.
+ */
+public class PolicyProfiles {
+    /**
+     * Staff must have encryption and a secure lock screen.
+     */
+    public static final DecisionTable STAFF = staff("staff").compile();
+
+    /**
+     * Contractors must additionally be remotely controllable.
+     */
+    public static final DecisionTable CONTRACTOR = staff("contractor")
+            .require(ResultSnapshot.KEY_REMOTE_CONTROL)
+            .compile();
+
+    public static final DecisionTable[] ALL = { STAFF, CONTRACTOR };
+
+    private PolicyProfiles() {
+    }
+
+    private static PolicyProfile staff(String name) {
+        return new PolicyProfile(name)
+                .require(ResultSnapshot.KEY_SECURE_LOCK_SCREEN)
+                .require(ResultSnapshot.KEY_ENCRYPTION)
+                .advise(ResultSnapshot.KEY_SIM_LOCK)
+                .advise(ResultSnapshot.KEY_ANTIVIRUS)
+                .advise(ResultSnapshot.KEY_REMOTE_CONTROL);
+    }
+}
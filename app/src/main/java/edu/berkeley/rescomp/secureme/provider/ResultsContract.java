@@ -0,0 +1,79 @@
+package edu.berkeley.rescomp.secureme.provider;
+
+import android.net.Uri;
+
+/**
+ * The contract between {@link ResultsProvider} and the apps reading it, such
+ * as MDM agents and helpdesk tools. Reading requires {@link #PERMISSION_READ}.
+ * Observers registered on {@link #BASE_URI} are notified whenever the
+ * outcomes change.
+ */
+public final class ResultsContract {
+    public static final String AUTHORITY = "edu.berkeley.rescomp.secureme.results";
+    public static final String PERMISSION_READ = "edu.berkeley.rescomp.secureme.permission.READ_RESULTS";
+
+    public static final Uri BASE_URI = Uri.parse("content://" + AUTHORITY);
+
+    private ResultsContract() {
+    }
+
+    /**
+     * One row per security item, in the order of
+     * {@link edu.berkeley.rescomp.secureme.checklist.ResultSnapshot#KEYS}.
+     */
+    public static final class Results {
+        public static final String PATH = "results";
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_URI, PATH);
+        public static final String CONTENT_TYPE =
+                "vnd.android.cursor.dir/vnd.edu.berkeley.rescomp.secureme.result";
+
+        public static final String _ID = "_id";
+        /**
+         * Stable machine-readable key of the item, e.g. {@code encryption}.
+         */
+        public static final String KEY = "key";
+        /**
+         * Stable outcome code, e.g. {@code pass}.
+         */
+        public static final String OUTCOME = "outcome";
+        /**
+         * Numeric id of the outcome.
+         */
+        public static final String OUTCOME_ID = "outcome_id";
+        /**
+         * Milliseconds since the epoch at which the outcomes were first seen.
+         */
+        public static final String TIMESTAMP = "timestamp";
+
+        private Results() {
+        }
+    }
+
+    /**
+     * One row per built-in policy profile.
+     */
+    public static final class Compliance {
+        public static final String PATH = "compliance";
+        public static final Uri CONTENT_URI = Uri.withAppendedPath(BASE_URI, PATH);
+        public static final String CONTENT_TYPE =
+                "vnd.android.cursor.dir/vnd.edu.berkeley.rescomp.secureme.compliance";
+
+        public static final String _ID = "_id";
+        /**
+         * Name of the profile, e.g. {@code staff}.
+         */
+        public static final String PROFILE = "profile";
+        /**
+         * One of {@code compliant}, {@code advisory_gaps} or {@code non_compliant}.
+         */
+        public static final String COMPLIANCE = "compliance";
+        /**
+         * Comma-separated keys of the required items that are not met.
+         */
+        public static final String REQUIRED_GAPS = "required_gaps";
+        public static final String TIMESTAMP = "timestamp";
+
+        private Compliance() {
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package edu.berkeley.rescomp.secureme.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+
+import java.util.Locale;
+
+import edu.berkeley.rescomp.secureme.checklist.EvaluationService;
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.checklist.SnapshotStore;
+import edu.berkeley.rescomp.secureme.policy.DecisionTable;
+import edu.berkeley.rescomp.secureme.policy.PolicyProfiles;
+
+/**
+ * Read-only view of the latest checklist outcomes for other apps. Queries are
+ * answered from the snapshot in memory, or the stored one after a restart,
+ * and never run checks themselves, so any number of consumers share the
+ * app's own checklist passes. Projections are honored; selections are not
+ * supported, and rows always come in {@code _id} order.
+ */
+public class ResultsProvider extends ContentProvider {
+    private static final int RESULTS = 1;
+    private static final int COMPLIANCE = 2;
+
+    private static final String[] RESULTS_COLUMNS = {
+            ResultsContract.Results._ID,
+            ResultsContract.Results.KEY,
+            ResultsContract.Results.OUTCOME,
+            ResultsContract.Results.OUTCOME_ID,
+            ResultsContract.Results.TIMESTAMP,
+    };
+
+    private static final String[] COMPLIANCE_COLUMNS = {
+            ResultsContract.Compliance._ID,
+            ResultsContract.Compliance.PROFILE,
+            ResultsContract.Compliance.COMPLIANCE,
+            ResultsContract.Compliance.REQUIRED_GAPS,
+            ResultsContract.Compliance.TIMESTAMP,
+    };
+
+    private static final UriMatcher sUriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+
+    static {
+        sUriMatcher.addURI(ResultsContract.AUTHORITY, ResultsContract.Results.PATH, RESULTS);
+        sUriMatcher.addURI(ResultsContract.AUTHORITY, ResultsContract.Compliance.PATH, COMPLIANCE);
+    }
+
+    /**
+     * Tells observers of {@link ResultsContract#BASE_URI} that the outcomes changed.
+     */
+    public static void notifyResultsChanged(Context context) {
+        context.getContentResolver().notifyChange(ResultsContract.BASE_URI, null);
+    }
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        int match = sUriMatcher.match(uri);
+        if (match != RESULTS && match != COMPLIANCE) {
+            throw new IllegalArgumentException("Unknown URI: " + uri);
+        }
+        if (selection != null) {
+            throw new IllegalArgumentException("Selection is not supported: " + selection);
+        }
+        if (sortOrder != null && !isIdOrder(sortOrder)) {
+            throw new IllegalArgumentException("Only _id order is supported: " + sortOrder);
+        }
+        String[] columns = (match == RESULTS) ? RESULTS_COLUMNS : COMPLIANCE_COLUMNS;
+        if (projection == null) {
+            projection = columns;
+        }
+        int[] columnIndexes = getColumnIndexes(columns, projection);
+        Context context = getContext();
+        ResultSnapshot snapshot = SecurityChecklist.getLatestSnapshot();
+        if (snapshot == null) {
+            snapshot = SnapshotStore.load(context);
+        }
+        MatrixCursor cursor;
+        if (match == RESULTS) {
+            cursor = new MatrixCursor(projection, ResultSnapshot.SIZE);
+            if (snapshot != null) {
+                addResultRows(cursor, columnIndexes, snapshot);
+            }
+        } else {
+            cursor = new MatrixCursor(projection, PolicyProfiles.ALL.length);
+            if (snapshot != null) {
+                addComplianceRows(cursor, columnIndexes, snapshot);
+            }
+        }
+        if (snapshot == null) {
+            // nothing has been checked yet; observers hear about it once a pass completes
+            EvaluationService.requestEvaluation(context);
+        }
+        cursor.setNotificationUri(context.getContentResolver(), uri);
+        return cursor;
+    }
+
+    private static boolean isIdOrder(String sortOrder) {
+        String order = sortOrder.trim().toLowerCase(Locale.US);
+        return order.length() == 0 || order.equals(ResultsContract.Results._ID)
+                || order.equals(ResultsContract.Results._ID + " asc");
+    }
+
+    /**
+     * @return for each projected column, its index in the full row
+     * @throws IllegalArgumentException if the projection names an unknown column
+     */
+    private static int[] getColumnIndexes(String[] columns, String[] projection) {
+        int[] indexes = new int[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            indexes[i] = -1;
+            for (int column = 0; column < columns.length; column++) {
+                if (columns[column].equals(projection[i])) {
+                    indexes[i] = column;
+                    break;
+                }
+            }
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Unknown column: " + projection[i]);
+            }
+        }
+        return indexes;
+    }
+
+    private static void addRow(MatrixCursor cursor, int[] columnIndexes, Object[] row) {
+        Object[] projected = new Object[columnIndexes.length];
+        for (int i = 0; i < columnIndexes.length; i++) {
+            projected[i] = row[columnIndexes[i]];
+        }
+        cursor.addRow(projected);
+    }
+
+    private static void addResultRows(MatrixCursor cursor, int[] columnIndexes,
+                                      ResultSnapshot snapshot) {
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            Outcome outcome = snapshot.getOutcome(i);
+            addRow(cursor, columnIndexes, new Object[] {
+                    i,
+                    ResultSnapshot.KEYS[i],
+                    outcome.getCode(),
+                    outcome.getId(),
+                    snapshot.getTimestamp(),
+            });
+        }
+    }
+
+    private static void addComplianceRows(MatrixCursor cursor, int[] columnIndexes,
+                                          ResultSnapshot snapshot) {
+        for (int i = 0; i < PolicyProfiles.ALL.length; i++) {
+            DecisionTable table = PolicyProfiles.ALL[i];
+            int gaps = table.requiredGaps(snapshot.getPacked());
+            StringBuilder keys = new StringBuilder();
+            for (int slot = 0; slot < ResultSnapshot.SIZE; slot++) {
+                if ((gaps & (1 << slot)) != 0) {
+                    if (keys.length() > 0) {
+                        keys.append(',');
+                    }
+                    keys.append(ResultSnapshot.KEYS[slot]);
+                }
+            }
+            addRow(cursor, columnIndexes, new Object[] {
+                    i,
+                    table.getName(),
+                    table.evaluate(snapshot).name().toLowerCase(Locale.US),
+                    keys.toString(),
+                    snapshot.getTimestamp(),
+            });
+        }
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        switch (sUriMatcher.match(uri)) {
+            case RESULTS:
+                return ResultsContract.Results.CONTENT_TYPE;
+            case COMPLIANCE:
+                return ResultsContract.Compliance.CONTENT_TYPE;
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Results are read-only");
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Results are read-only");
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Results are read-only");
+    }
+}
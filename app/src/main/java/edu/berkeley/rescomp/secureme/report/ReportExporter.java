@@ -0,0 +1,213 @@
+package edu.berkeley.rescomp.secureme.report;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.support.v4.content.FileProvider;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import edu.berkeley.rescomp.secureme.checklist.ResultHistory;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+import edu.berkeley.rescomp.secureme.checklist.SecurityChecklist;
+import edu.berkeley.rescomp.secureme.checklist.SnapshotStore;
+
+/**
+ * Writes compliance reports of the checklist outcomes for auditors. Reports
+ * are streamed through a fixed-size buffer, one record at a time, and use the
+ * stable codes from {@link edu.berkeley.rescomp.secureme.checklist.Outcome}
+ * rather than localized text. Each record carries when its outcomes were first
+ * seen; the current one also carries when they were last confirmed by a pass,
+ * if a pass ran since the app started.
+ */
+public class ReportExporter {
+    public static final String FILE_PROVIDER_AUTHORITY = "edu.berkeley.rescomp.secureme.fileprovider";
+
+    private static final String REPORT_DIR = "reports";
+    private static final String REPORT_NAME = "secureme-report";
+    private static final int BUFFER_SIZE = 8192;
+
+    public enum Format {
+        JSON("application/json", "json"),
+        CSV("text/csv", "csv");
+
+        private final String mimeType;
+        private final String extension;
+
+        private Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    private ReportExporter() {
+    }
+
+    /**
+     * Writes a report to the given file descriptor, e.g. one opened for a document the user
+     * picked. The descriptor is closed afterwards.
+     */
+    public static void export(Context context, ParcelFileDescriptor fd, Format format,
+                              boolean includeHistory) throws IOException {
+        export(context, new ParcelFileDescriptor.AutoCloseOutputStream(fd), format, includeHistory);
+    }
+
+    /**
+     * Writes a report to the given stream and closes it.
+     *
+     * @param includeHistory whether to follow the current snapshot with every recorded change
+     */
+    public static void export(Context context, OutputStream out, Format format,
+                              boolean includeHistory) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"), BUFFER_SIZE);
+        ResultHistory.Reader history = null;
+        try {
+            if (includeHistory) {
+                history = ResultHistory.open(context);
+            }
+            ResultSnapshot current = SecurityChecklist.getLatestSnapshot();
+            long lastChecked = SecurityChecklist.getLastCheckedMillis();
+            if (current == null) {
+                // no pass in this process yet; report what the last one stored
+                current = SnapshotStore.load(context);
+                lastChecked = 0;
+            }
+            if (format == Format.JSON) {
+                writeJson(writer, current, lastChecked, history);
+            } else {
+                writeCsv(writer, current, lastChecked, history);
+            }
+        } finally {
+            if (history != null) {
+                history.close();
+            }
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes a report into the app's cache and builds an intent for sharing it.
+     *
+     * @return intent to pass to {@link Intent#createChooser}
+     */
+    public static Intent exportForSharing(Context context, Format format,
+                                          boolean includeHistory) throws IOException {
+        File dir = new File(context.getCacheDir(), REPORT_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create " + dir);
+        }
+        File file = new File(dir, REPORT_NAME + "." + format.getExtension());
+        export(context, new FileOutputStream(file), format, includeHistory);
+
+        Uri uri = FileProvider.getUriForFile(context, FILE_PROVIDER_AUTHORITY, file);
+        Intent intent = new Intent(Intent.ACTION_SEND);
+        intent.setType(format.getMimeType());
+        intent.putExtra(Intent.EXTRA_STREAM, uri);
+        intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        return intent;
+    }
+
+    private static void writeJson(Writer writer, ResultSnapshot current, long lastChecked,
+                                  ResultHistory.Reader history) throws IOException {
+        writer.write("{\"generated\":");
+        writer.write(Long.toString(System.currentTimeMillis()));
+        writer.write(",\"current\":");
+        if (current == null) {
+            writer.write("null");
+        } else {
+            writeJsonRecord(writer, current.getTimestamp(), lastChecked, current.getPacked());
+        }
+        if (history != null) {
+            writer.write(",\"history\":[");
+            boolean first = true;
+            while (history.next()) {
+                if (!first) {
+                    writer.write(',');
+                }
+                writeJsonRecord(writer, history.getTimestamp(), 0, history.getPacked());
+                first = false;
+            }
+            writer.write(']');
+        }
+        writer.write("}\n");
+    }
+
+    /**
+     * @param lastChecked when the outcomes were last confirmed; 0 to leave it out
+     */
+    private static void writeJsonRecord(Writer writer, long firstSeen, long lastChecked,
+                                        int packed) throws IOException {
+        writer.write("{\"first_seen\":");
+        writer.write(Long.toString(firstSeen));
+        if (lastChecked != 0) {
+            writer.write(",\"last_checked\":");
+            writer.write(Long.toString(lastChecked));
+        }
+        writer.write(",\"outcomes\":{");
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            // keys and codes are plain ASCII identifiers, so they need no escaping
+            writer.write('"');
+            writer.write(ResultSnapshot.KEYS[i]);
+            writer.write("\":\"");
+            writer.write(ResultSnapshot.unpack(packed, i).getCode());
+            writer.write('"');
+        }
+        writer.write("}}");
+    }
+
+    private static void writeCsv(Writer writer, ResultSnapshot current, long lastChecked,
+                                 ResultHistory.Reader history) throws IOException {
+        writer.write("record,first_seen,last_checked");
+        for (String key : ResultSnapshot.KEYS) {
+            writer.write(',');
+            writer.write(key);
+        }
+        writer.write("\r\n");
+        if (current != null) {
+            writeCsvRecord(writer, "current", current.getTimestamp(), lastChecked,
+                    current.getPacked());
+        }
+        if (history != null) {
+            while (history.next()) {
+                writeCsvRecord(writer, "history", history.getTimestamp(), 0, history.getPacked());
+            }
+        }
+    }
+
+    /**
+     * @param lastChecked when the outcomes were last confirmed; 0 to leave the column empty
+     */
+    private static void writeCsvRecord(Writer writer, String record, long firstSeen,
+                                       long lastChecked, int packed) throws IOException {
+        writer.write(record);
+        writer.write(',');
+        writer.write(Long.toString(firstSeen));
+        writer.write(',');
+        if (lastChecked != 0) {
+            writer.write(Long.toString(lastChecked));
+        }
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            writer.write(',');
+            writer.write(ResultSnapshot.unpack(packed, i).getCode());
+        }
+        writer.write("\r\n");
+    }
+}
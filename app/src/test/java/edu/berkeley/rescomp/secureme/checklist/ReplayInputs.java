@@ -0,0 +1,227 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.content.Intent;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves the inputs of a trace written by {@link RecordingInputs}. Inputs
+ * that the trace does not contain, e.g. because the checks read something new
+ * since it was recorded, fall back to their defaults and are counted in
+ * {@link #getMissCount}.
+ */
+class ReplayInputs implements CheckInputs {
+    private final String description;
+    private final int expectedOutcomes;
+
+    private final Map<String, Long> secureLongs = new HashMap<String, Long>();
+    private final Map<String, Integer> secureInts = new HashMap<String, Integer>();
+    private final Map<String, String> secureStrings = new HashMap<String, String>();
+    private final Map<String, Integer> systemInts = new HashMap<String, Integer>();
+    private final Map<String, Boolean> packages = new HashMap<String, Boolean>();
+
+    /**
+     * Values of the inputs that take no name, indexed by tag.
+     */
+    private final int[] values = new int[InputTrace.TAG_PLAY_STORE_AVAILABLE + 1];
+    private final boolean[] present = new boolean[values.length];
+
+    private int missCount;
+    private int recordedReadCount;
+    private int readCount;
+
+    /**
+     * Reads a whole trace; the stream is not closed.
+     */
+    ReplayInputs(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        if (in.readInt() != InputTrace.MAGIC) {
+            throw new IOException("Not an input trace");
+        }
+        int version = in.readUnsignedByte();
+        if (version != InputTrace.VERSION) {
+            throw new IOException("Unsupported input trace version " + version);
+        }
+        description = in.readUTF();
+        Integer outcomes = null;
+        while (outcomes == null) {
+            int tag;
+            try {
+                tag = in.readUnsignedByte();
+            } catch (EOFException e) {
+                throw new IOException("Input trace ends without outcomes");
+            }
+            if (tag != InputTrace.TAG_OUTCOMES) {
+                recordedReadCount++;
+            }
+            switch (tag) {
+                case InputTrace.TAG_OUTCOMES:
+                    outcomes = in.readInt();
+                    break;
+                case InputTrace.TAG_SECURE_LONG:
+                    secureLongs.put(in.readUTF(), in.readLong());
+                    break;
+                case InputTrace.TAG_SECURE_INT:
+                    secureInts.put(in.readUTF(), in.readInt());
+                    break;
+                case InputTrace.TAG_SECURE_STRING:
+                    String name = in.readUTF();
+                    secureStrings.put(name, in.readBoolean() ? in.readUTF() : null);
+                    break;
+                case InputTrace.TAG_SYSTEM_INT:
+                    systemInts.put(in.readUTF(), in.readInt());
+                    break;
+                case InputTrace.TAG_PACKAGE_INSTALLED:
+                    packages.put(in.readUTF(), in.readBoolean());
+                    break;
+                case InputTrace.TAG_KEYGUARD_SECURE:
+                case InputTrace.TAG_PLAY_STORE_AVAILABLE:
+                    values[tag] = in.readBoolean() ? 1 : 0;
+                    present[tag] = true;
+                    break;
+                case InputTrace.TAG_SDK_INT:
+                case InputTrace.TAG_ENCRYPTION_STATUS:
+                case InputTrace.TAG_PHONE_TYPE:
+                case InputTrace.TAG_SIM_STATE:
+                    values[tag] = in.readInt();
+                    present[tag] = true;
+                    break;
+                default:
+                    throw new IOException("Unknown input trace tag " + tag);
+            }
+        }
+        expectedOutcomes = outcomes;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return packed outcomes the recording device computed from these inputs
+     */
+    public int getExpectedOutcomes() {
+        return expectedOutcomes;
+    }
+
+    /**
+     * @return number of reads so far that the trace could not answer
+     */
+    public int getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of reads the recording pass made
+     */
+    public int getRecordedReadCount() {
+        return recordedReadCount;
+    }
+
+    /**
+     * @return number of reads so far, answered or not
+     */
+    public int getReadCount() {
+        return readCount;
+    }
+
+    @Override
+    public int getSdkInt() {
+        return getValue(InputTrace.TAG_SDK_INT, 0);
+    }
+
+    @Override
+    public long getSecureLong(String name, long def) {
+        readCount++;
+        Long value = secureLongs.get(name);
+        if (value == null) {
+            missCount++;
+            return def;
+        }
+        return value;
+    }
+
+    @Override
+    public int getSecureInt(String name, int def) {
+        return getNamedValue(secureInts, name, def);
+    }
+
+    @Override
+    public String getSecureString(String name) {
+        readCount++;
+        if (!secureStrings.containsKey(name)) {
+            missCount++;
+        }
+        return secureStrings.get(name);
+    }
+
+    @Override
+    public int getSystemInt(String name, int def) {
+        return getNamedValue(systemInts, name, def);
+    }
+
+    @Override
+    public boolean isKeyguardSecure() {
+        return getValue(InputTrace.TAG_KEYGUARD_SECURE, 0) != 0;
+    }
+
+    @Override
+    public int getStorageEncryptionStatus() {
+        return getValue(InputTrace.TAG_ENCRYPTION_STATUS, 0);
+    }
+
+    @Override
+    public int getPhoneType() {
+        return getValue(InputTrace.TAG_PHONE_TYPE, 0);
+    }
+
+    @Override
+    public int getSimState() {
+        return getValue(InputTrace.TAG_SIM_STATE, 0);
+    }
+
+    @Override
+    public boolean isPackageInstalled(String packageName) {
+        readCount++;
+        Boolean value = packages.get(packageName);
+        if (value == null) {
+            missCount++;
+            return false;
+        }
+        return value;
+    }
+
+    @Override
+    public boolean isPlayStoreAvailable() {
+        return getValue(InputTrace.TAG_PLAY_STORE_AVAILABLE, 0) != 0;
+    }
+
+    @Override
+    public Intent getLaunchIntent(String packageName) {
+        return null;
+    }
+
+    private int getValue(int tag, int def) {
+        readCount++;
+        if (!present[tag]) {
+            missCount++;
+            return def;
+        }
+        return values[tag];
+    }
+
+    private int getNamedValue(Map<String, Integer> map, String name, int def) {
+        readCount++;
+        Integer value = map.get(name);
+        if (value == null) {
+            missCount++;
+            return def;
+        }
+        return value;
+    }
+}
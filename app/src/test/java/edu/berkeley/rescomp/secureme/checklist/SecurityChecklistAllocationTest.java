@@ -0,0 +1,179 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import android.app.admin.DevicePolicyManager;
+import android.content.Intent;
+import android.provider.Settings;
+import android.telephony.TelephonyManager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks what a warmed-up checklist pass allocates. A pass whose outcomes did
+ * not change, which is the common case on every resume, must not allocate at
+ * all: neither when updating the items nor when comparing the outcomes with
+ * the latest snapshot ({@link SecurityChecklist#swapLatest}). A change of
+ * outcomes allocates a new snapshot and its persistence by design, but the
+ * item updates themselves still must not.
+ */
+public class SecurityChecklistAllocationTest {
+    private static final int WARM_UP_PASSES = 20000;
+    private static final int MEASURED_PASSES = 10000;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private long threadId;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+    }
+
+    @Test
+    public void unchangedPassDoesNotAllocate() {
+        SecurityChecklist checklist = new SecurityChecklist();
+        FakeInputs inputs = new FakeInputs();
+
+        int expected = checklist.evaluate(inputs);
+        assertEquals(Outcome.PASS, ResultSnapshot.unpack(expected,
+                ResultSnapshot.indexOf(ResultSnapshot.KEY_SECURE_LOCK_SCREEN)));
+        SecurityChecklist.swapLatest(expected, 1);
+
+        int sink = 0;
+        for (int i = 0; i < WARM_UP_PASSES; i++) {
+            sink ^= unchangedPass(checklist, inputs, i);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_PASSES; i++) {
+            sink ^= unchangedPass(checklist, inputs, i);
+        }
+        assertAllocatedNothing(threadBean.getThreadAllocatedBytes(threadId) - before, sink);
+    }
+
+    @Test
+    public void itemUpdatesDoNotAllocateWhenOutcomesChange() {
+        SecurityChecklist checklist = new SecurityChecklist();
+        FakeInputs inputs = new FakeInputs();
+
+        int first = checklist.evaluate(inputs);
+        inputs.flip();
+        int second = checklist.evaluate(inputs);
+        assertTrue("outcomes should differ between the two input states", first != second);
+
+        int sink = 0;
+        for (int i = 0; i < WARM_UP_PASSES; i++) {
+            inputs.flip();
+            sink ^= checklist.evaluate(inputs);
+        }
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_PASSES; i++) {
+            inputs.flip();
+            sink ^= checklist.evaluate(inputs);
+        }
+        assertAllocatedNothing(threadBean.getThreadAllocatedBytes(threadId) - before, sink);
+    }
+
+    /**
+     * The in-memory part of a pass on the main thread: update the items, then compare the
+     * outcomes with the latest snapshot.
+     */
+    private static int unchangedPass(SecurityChecklist checklist, FakeInputs inputs, int pass) {
+        int packed = checklist.evaluate(inputs);
+        assertFalse("outcomes should not change", SecurityChecklist.swapLatest(packed, pass));
+        return packed;
+    }
+
+    private static void assertAllocatedNothing(long allocated, int sink) {
+
+        // the bean itself may allocate a few bytes; anything per pass would show up in the thousands
+        assertTrue("allocated " + allocated + " bytes over " + MEASURED_PASSES
+                + " passes (" + sink + ")", allocated < MEASURED_PASSES);
+    }
+
+    /**
+     * Inputs of a KitKat device with a SIM, encryption and Device Manager, whose
+     * location and lock screen can be flipped on and off between passes.
+     */
+    private static class FakeInputs implements CheckInputs {
+        private boolean on = true;
+
+        void flip() {
+            on = !on;
+        }
+
+        @Override
+        public int getSdkInt() {
+            return 19;
+        }
+
+        @Override
+        public long getSecureLong(String name, long def) {
+            return def;
+        }
+
+        @Override
+        public int getSecureInt(String name, int def) {
+            if (Settings.Secure.LOCATION_MODE.equals(name)) {
+                return on ? Settings.Secure.LOCATION_MODE_HIGH_ACCURACY
+                        : Settings.Secure.LOCATION_MODE_OFF;
+            }
+            return def;
+        }
+
+        @Override
+        public String getSecureString(String name) {
+            return null;
+        }
+
+        @Override
+        public int getSystemInt(String name, int def) {
+            return def;
+        }
+
+        @Override
+        public boolean isKeyguardSecure() {
+            return on;
+        }
+
+        @Override
+        public int getStorageEncryptionStatus() {
+            return DevicePolicyManager.ENCRYPTION_STATUS_ACTIVE;
+        }
+
+        @Override
+        public int getPhoneType() {
+            return TelephonyManager.PHONE_TYPE_GSM;
+        }
+
+        @Override
+        public int getSimState() {
+            return TelephonyManager.SIM_STATE_PIN_REQUIRED;
+        }
+
+        @Override
+        public boolean isPackageInstalled(String packageName) {
+            return SecurityChecklist.PACKAGE_DEVICE_MANAGER.equals(packageName);
+        }
+
+        @Override
+        public boolean isPlayStoreAvailable() {
+            return true;
+        }
+
+        @Override
+        public Intent getLaunchIntent(String packageName) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package edu.berkeley.rescomp.secureme.checklist;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Feeds the recorded input traces in {@code src/test/resources/traces} back
+ * through the security item checks. Every trace must still produce the
+ * outcomes its device computed, so a change to a check that would flip the
+ * result on a recorded device fails here. The cost of a pass is checked with
+ * deterministic budgets rather than wall-clock time: a pass may not read more
+ * inputs than the recording did, since every read is a binder call or
+ * settings lookup on a device, and a warmed-up pass may not allocate. To add a device, turn on "Record
+ * check inputs" in the app's menu, run a pass and copy the new file from the
+ * app's external {@code traces} directory into the corpus.
+ */
+public class TraceReplayTest {
+    private static final String CORPUS = "traces";
+    private static final int WARM_UP_PASSES = 20000;
+    private static final int MEASURED_PASSES = 10000;
+
+    private final List<File> files = new ArrayList<File>();
+    private final List<ReplayInputs> traces = new ArrayList<ReplayInputs>();
+
+    @Before
+    public void loadCorpus() throws IOException {
+        File[] children = getCorpusDirectory().listFiles();
+        assertTrue("no trace corpus", children != null);
+        Arrays.sort(children);
+        for (File child : children) {
+            if (child.getName().endsWith(SecurityChecklist.TRACE_EXTENSION)) {
+                InputStream in = new BufferedInputStream(new FileInputStream(child));
+                try {
+                    files.add(child);
+                    traces.add(new ReplayInputs(in));
+                } finally {
+                    in.close();
+                }
+            }
+        }
+        assertTrue("trace corpus is empty", !traces.isEmpty());
+    }
+
+    @Test
+    public void tracesReplayToRecordedOutcomes() {
+        for (int i = 0; i < traces.size(); i++) {
+            ReplayInputs trace = traces.get(i);
+            int actual = new SecurityChecklist().evaluate(trace);
+            assertEquals(files.get(i).getName() + " (" + trace.getDescription() + ")",
+                    describe(trace.getExpectedOutcomes()), describe(actual));
+        }
+    }
+
+    @Test
+    public void tracesAnswerEveryInput() {
+        for (int i = 0; i < traces.size(); i++) {
+            ReplayInputs trace = traces.get(i);
+            new SecurityChecklist().evaluate(trace);
+            assertEquals(files.get(i).getName() + " is missing inputs", 0, trace.getMissCount());
+        }
+    }
+
+    @Test
+    public void passesReadNoMoreInputsThanRecorded() {
+        for (int i = 0; i < traces.size(); i++) {
+            ReplayInputs trace = traces.get(i);
+            int before = trace.getReadCount();
+            new SecurityChecklist().evaluate(trace);
+            int reads = trace.getReadCount() - before;
+            assertTrue(files.get(i).getName() + " took " + reads + " reads, recorded "
+                    + trace.getRecordedReadCount(), reads <= trace.getRecordedReadCount());
+        }
+    }
+
+    @Test
+    public void warmedUpPassesDoNotAllocate() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        SecurityChecklist checklist = new SecurityChecklist();
+        for (int i = 0; i < traces.size(); i++) {
+            ReplayInputs trace = traces.get(i);
+            int sink = 0;
+            for (int n = 0; n < WARM_UP_PASSES; n++) {
+                sink ^= checklist.evaluate(trace);
+            }
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            for (int n = 0; n < MEASURED_PASSES; n++) {
+                sink ^= checklist.evaluate(trace);
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+            // the bean itself may allocate a few bytes; anything per pass would show up in the thousands
+            assertTrue(files.get(i).getName() + " allocated " + allocated + " bytes over "
+                    + MEASURED_PASSES + " passes (" + sink + ")", allocated < MEASURED_PASSES);
+        }
+    }
+
+    /**
+     * The corpus is on the test classpath when run by Gradle; fall back to the
+     * source tree for runners that do not copy resources.
+     */
+    private static File getCorpusDirectory() {
+        URL url = TraceReplayTest.class.getClassLoader().getResource(CORPUS);
+        if (url != null && "file".equals(url.getProtocol())) {
+            try {
+                return new File(url.toURI());
+            } catch (URISyntaxException e) {
+                // fall through to the source tree
+            }
+        }
+        return new File("src/test/resources/" + CORPUS);
+    }
+
+    /**
+     * @return outcome codes by key, e.g. {@code encryption=pass}
+     */
+    private static String describe(int packed) {
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < ResultSnapshot.SIZE; i++) {
+            if (i > 0) {
+                description.append(' ');
+            }
+            description.append(ResultSnapshot.KEYS[i]).append('=')
+                    .append(ResultSnapshot.unpack(packed, i).getCode());
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package edu.berkeley.rescomp.secureme.diagnostics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the monitor's hooks directly and asserts on its counters. Frames are
+ * fed through {@link JankMonitor#onFrame} as the frame tracker would.
+ */
+public class JankMonitorTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    @Before
+    public void setUp() {
+        JankMonitor.setEnabled(false);
+        JankMonitor.reset();
+    }
+
+    @After
+    public void tearDown() {
+        JankMonitor.screenHidden(JankMonitor.SCREEN_LIST);
+        JankMonitor.screenHidden(JankMonitor.SCREEN_DETAIL);
+        JankMonitor.setEnabled(false);
+        JankMonitor.reset();
+    }
+
+    @Test
+    public void callbacksAreOnlyTimedWhileEnabled() {
+        JankMonitor.end(JankMonitor.LIST_GET_VIEW, JankMonitor.begin());
+        assertEquals(0, JankMonitor.getCallbackCount(JankMonitor.LIST_GET_VIEW));
+
+        JankMonitor.setEnabled(true);
+        JankMonitor.end(JankMonitor.LIST_GET_VIEW, JankMonitor.begin());
+        JankMonitor.end(JankMonitor.LIST_GET_VIEW, JankMonitor.begin());
+        assertEquals(2, JankMonitor.getCallbackCount(JankMonitor.LIST_GET_VIEW));
+        assertEquals(0, JankMonitor.getSlowCallbackCount(JankMonitor.LIST_GET_VIEW));
+        assertTrue(JankMonitor.getCallbackMaxNanos(JankMonitor.LIST_GET_VIEW)
+                <= JankMonitor.getCallbackTotalNanos(JankMonitor.LIST_GET_VIEW));
+    }
+
+    @Test
+    public void slowCallbacksAreCounted() throws InterruptedException {
+        JankMonitor.setEnabled(true);
+        long start = JankMonitor.begin();
+        Thread.sleep(20);
+        JankMonitor.end(JankMonitor.DETAIL_ON_RESUME, start);
+        assertEquals(1, JankMonitor.getSlowCallbackCount(JankMonitor.DETAIL_ON_RESUME));
+        assertTrue(JankMonitor.getCallbackMaxNanos(JankMonitor.DETAIL_ON_RESUME) > FRAME_NANOS);
+    }
+
+    @Test
+    public void screensShownWhileDisabledAreVisibleOnceEnabled() {
+        JankMonitor.screenShown(JankMonitor.SCREEN_LIST);
+        assertTrue(JankMonitor.isScreenVisible(JankMonitor.SCREEN_LIST));
+
+        JankMonitor.setEnabled(true);
+        JankMonitor.onFrame(FRAME_NANOS);
+        JankMonitor.onFrame(3 * FRAME_NANOS);
+        assertEquals(2, JankMonitor.getFrameCount(JankMonitor.SCREEN_LIST));
+        assertEquals(2, JankMonitor.getDroppedFrameCount(JankMonitor.SCREEN_LIST));
+    }
+
+    @Test
+    public void framesAreOnlyAttributedToVisibleScreens() {
+        JankMonitor.setEnabled(true);
+        JankMonitor.screenShown(JankMonitor.SCREEN_LIST);
+        JankMonitor.screenShown(JankMonitor.SCREEN_DETAIL);
+        JankMonitor.onFrame(FRAME_NANOS);
+
+        JankMonitor.screenHidden(JankMonitor.SCREEN_LIST);
+        assertFalse(JankMonitor.isScreenVisible(JankMonitor.SCREEN_LIST));
+        JankMonitor.onFrame(FRAME_NANOS);
+
+        assertEquals(1, JankMonitor.getFrameCount(JankMonitor.SCREEN_LIST));
+        assertEquals(2, JankMonitor.getFrameCount(JankMonitor.SCREEN_DETAIL));
+        assertEquals(0, JankMonitor.getDroppedFrameCount(JankMonitor.SCREEN_DETAIL));
+    }
+
+    @Test
+    public void disablingKeepsVisibilityAndStatistics() {
+        JankMonitor.setEnabled(true);
+        JankMonitor.screenShown(JankMonitor.SCREEN_DETAIL);
+        JankMonitor.onFrame(FRAME_NANOS);
+
+        JankMonitor.setEnabled(false);
+        assertTrue(JankMonitor.isScreenVisible(JankMonitor.SCREEN_DETAIL));
+        assertEquals(1, JankMonitor.getFrameCount(JankMonitor.SCREEN_DETAIL));
+
+        JankMonitor.reset();
+        assertEquals(0, JankMonitor.getFrameCount(JankMonitor.SCREEN_DETAIL));
+    }
+}
@@ -0,0 +1,146 @@
+package edu.berkeley.rescomp.secureme.fleet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Round-trips segments through {@link PostureSegment#write} and
+ * {@link PostureSegment#open}, and checks that damaged headers are rejected.
+ */
+public class PostureSegmentTest {
+    private static final long[] DEVICE_IDS = {7, 3, 11};
+    private static final long[] TIMESTAMPS = {1000, 1500, 1200};
+    private static final byte[][] CHECKS = {
+            {(byte) Outcome.PASS.getId(), (byte) Outcome.FAIL.getId(), (byte) Outcome.PASS.getId()},
+            {(byte) Outcome.ENABLED.getId(), (byte) Outcome.ENABLED.getId(),
+                    (byte) Outcome.DISABLED.getId()},
+    };
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("segment", ".smcs");
+        PostureSegment.write(file, DEVICE_IDS, TIMESTAMPS, CHECKS, DEVICE_IDS.length);
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void columnsRoundTrip() throws IOException {
+        PostureSegment segment = PostureSegment.open(file);
+        assertEquals(3, segment.getRowCount());
+        assertEquals(2, segment.getCheckCount());
+        for (int row = 0; row < DEVICE_IDS.length; row++) {
+            assertEquals(DEVICE_IDS[row], segment.getDeviceId(row));
+            assertEquals(TIMESTAMPS[row], segment.getTimestamp(row));
+            for (int check = 0; check < CHECKS.length; check++) {
+                assertEquals(CHECKS[check][row], segment.getOutcomeId(check, row));
+            }
+        }
+    }
+
+    @Test
+    public void headerStatisticsCoverEveryRow() throws IOException {
+        PostureSegment segment = PostureSegment.open(file);
+        assertEquals(3, segment.getMinDeviceId());
+        assertEquals(11, segment.getMaxDeviceId());
+        assertEquals(1000, segment.getMinTimestamp());
+        assertEquals(1500, segment.getMaxTimestamp());
+        assertEquals(Outcome.PASS.getId(), segment.getMinOutcome(0));
+        assertEquals(Outcome.FAIL.getId(), segment.getMaxOutcome(0));
+
+        assertTrue(segment.mayContain(0, Outcome.FAIL));
+        assertFalse(segment.mayContain(0, Outcome.UNAVAILABLE));
+        assertTrue(segment.mayContain(1, Outcome.DISABLED));
+        assertFalse(segment.mayContain(1, Outcome.PASS));
+    }
+
+    @Test
+    public void rangeChecksUseTimestampStatistics() throws IOException {
+        PostureSegment segment = PostureSegment.open(file);
+        assertTrue(segment.within(1000, 1500));
+        assertFalse(segment.within(1001, 1500));
+        assertTrue(segment.overlaps(1500, 2000));
+        assertFalse(segment.overlaps(1501, 2000));
+        assertFalse(segment.overlaps(0, 999));
+    }
+
+    @Test
+    public void checksAddedLaterReadAsUnknown() throws IOException {
+        PostureSegment segment = PostureSegment.open(file);
+        assertEquals(Outcome.UNKNOWN.getId(), segment.getOutcomeId(5, 0));
+        assertTrue(segment.mayContain(5, Outcome.UNKNOWN));
+        assertFalse(segment.mayContain(5, Outcome.PASS));
+    }
+
+    @Test
+    public void negativeRowCountIsRejected() throws IOException {
+        assertCorruptHeader(8, -1);
+    }
+
+    @Test
+    public void rowCountBeyondFileIsRejected() throws IOException {
+        assertCorruptHeader(8, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void checkCountBeyondFileIsRejected() throws IOException {
+        assertCorruptHeader(12, 1 << 29);
+    }
+
+    @Test
+    public void truncatedSegmentIsRejected() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 1);
+        } finally {
+            raf.close();
+        }
+        assertRejected();
+    }
+
+    @Test
+    public void tooManyRowsAreRejectedOnWrite() throws IOException {
+        int rows = PostureSegment.maxRows(CHECKS.length) + 1;
+        try {
+            PostureSegment.write(file, DEVICE_IDS, TIMESTAMPS, CHECKS, rows);
+            fail("wrote " + rows + " rows");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private void assertCorruptHeader(int offset, int value) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(offset);
+            raf.writeInt(value);
+        } finally {
+            raf.close();
+        }
+        assertRejected();
+    }
+
+    private void assertRejected() {
+        try {
+            PostureSegment.open(file);
+            fail("opened a damaged segment");
+        } catch (IOException expected) {
+        }
+    }
+}
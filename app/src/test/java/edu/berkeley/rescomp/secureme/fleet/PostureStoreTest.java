@@ -0,0 +1,195 @@
+package edu.berkeley.rescomp.secureme.fleet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.berkeley.rescomp.secureme.checklist.Outcome;
+import edu.berkeley.rescomp.secureme.checklist.ResultSnapshot;
+import edu.berkeley.rescomp.secureme.policy.Compliance;
+import edu.berkeley.rescomp.secureme.policy.DecisionTable;
+import edu.berkeley.rescomp.secureme.policy.PolicyProfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Appends records across several segments and scans them back. Every fifth
+ * device is encrypted; the others are not.
+ */
+public class PostureStoreTest {
+    private static final int SEGMENT_ROWS = 100;
+    private static final int ROWS = 250;
+    private static final long FIRST_TIMESTAMP = 1000;
+
+    private static final int ENCRYPTION = ResultSnapshot.indexOf(ResultSnapshot.KEY_ENCRYPTION);
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("posture", "");
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Could not create " + dir);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void appendWritesFullSegmentsAndFlushWritesTheRest() throws IOException {
+        PostureStore store = new PostureStore(dir, SEGMENT_ROWS);
+        appendRows(store);
+        assertEquals(2, store.getSegments().size());
+
+        store.flush();
+        assertEquals(3, store.getSegments().size());
+        assertEquals(SEGMENT_ROWS, store.getSegments().get(0).getRowCount());
+        assertEquals(SEGMENT_ROWS, store.getSegments().get(1).getRowCount());
+        assertEquals(ROWS - 2 * SEGMENT_ROWS, store.getSegments().get(2).getRowCount());
+
+        store.flush();
+        assertEquals("an empty flush writes nothing", 3, store.getSegments().size());
+    }
+
+    @Test
+    public void reopenedStoreSeesSegmentsAndContinuesNumbering() throws IOException {
+        PostureStore store = new PostureStore(dir, SEGMENT_ROWS);
+        appendRows(store);
+        store.flush();
+
+        PostureStore reopened = new PostureStore(dir, SEGMENT_ROWS);
+        assertEquals(3, reopened.getSegments().size());
+        assertEquals(ROWS, countRows(reopened, Long.MIN_VALUE, Long.MAX_VALUE));
+
+        reopened.append(1, FIRST_TIMESTAMP + ROWS, packed(true));
+        reopened.flush();
+        assertEquals("segment-00000003.smcs", reopened.getSegments().get(3).getFile().getName());
+    }
+
+    @Test
+    public void countOutcomesHonorsTheTimeRange() throws IOException {
+        PostureStore store = flushedStore();
+
+        long[] counts = new long[1 << Outcome.BITS];
+        store.countOutcomes(ENCRYPTION, Long.MIN_VALUE, Long.MAX_VALUE, counts);
+        assertEquals(50, counts[Outcome.PASS.getId()]);
+        assertEquals(200, counts[Outcome.FAIL.getId()]);
+
+        // straddles the first two segments
+        counts = new long[1 << Outcome.BITS];
+        store.countOutcomes(ENCRYPTION, FIRST_TIMESTAMP + 50, FIRST_TIMESTAMP + 149, counts);
+        assertEquals(20, counts[Outcome.PASS.getId()]);
+        assertEquals(80, counts[Outcome.FAIL.getId()]);
+
+        counts = new long[1 << Outcome.BITS];
+        store.countOutcomes(ENCRYPTION, 0, FIRST_TIMESTAMP - 1, counts);
+        assertEquals(0, counts[Outcome.PASS.getId()] + counts[Outcome.FAIL.getId()]);
+    }
+
+    @Test
+    public void countByBucketSkipsOutcomesNoSegmentContains() throws IOException {
+        PostureStore store = flushedStore();
+
+        long[] matches = new long[3];
+        long[] totals = new long[3];
+        store.countByBucket(ENCRYPTION, Outcome.PASS, FIRST_TIMESTAMP, 100, matches, totals);
+        assertEquals(20, matches[0]);
+        assertEquals(20, matches[1]);
+        assertEquals(10, matches[2]);
+        assertEquals(100, totals[0]);
+        assertEquals(100, totals[1]);
+        assertEquals(50, totals[2]);
+
+        for (PostureSegment segment : store.getSegments()) {
+            assertFalse(segment.mayContain(ENCRYPTION, Outcome.UNAVAILABLE));
+        }
+        matches = new long[3];
+        totals = new long[3];
+        store.countByBucket(ENCRYPTION, Outcome.UNAVAILABLE, FIRST_TIMESTAMP, 100, matches, totals);
+        assertEquals(0, matches[0] + matches[1] + matches[2]);
+        assertEquals(ROWS, totals[0] + totals[1] + totals[2]);
+    }
+
+    @Test
+    public void countComplianceEvaluatesEveryRowInRange() throws IOException {
+        PostureStore store = flushedStore();
+        DecisionTable table = PolicyProfile.parse("test", "encryption=required").compile();
+
+        long[] counts = new long[Compliance.values().length];
+        store.countCompliance(table, Long.MIN_VALUE, Long.MAX_VALUE, counts);
+        assertEquals(50, counts[Compliance.COMPLIANT.ordinal()]);
+        assertEquals(200, counts[Compliance.NON_COMPLIANT.ordinal()]);
+
+        counts = new long[Compliance.values().length];
+        store.countCompliance(table, FIRST_TIMESTAMP + 200, Long.MAX_VALUE, counts);
+        assertEquals(10, counts[Compliance.COMPLIANT.ordinal()]);
+        assertEquals(40, counts[Compliance.NON_COMPLIANT.ordinal()]);
+    }
+
+    @Test
+    public void unexpectedNamesAreIgnoredAndPartialSegmentsRemoved() throws IOException {
+        PostureStore store = flushedStore();
+        File partial = new File(dir, "segment-00000007.smcs.tmp");
+        File foreign = new File(dir, "segment-backup.smcs");
+        assertTrue(partial.createNewFile());
+        assertTrue(foreign.createNewFile());
+
+        PostureStore reopened = new PostureStore(dir, SEGMENT_ROWS);
+        assertEquals(store.getSegments().size(), reopened.getSegments().size());
+        assertFalse(partial.exists());
+        assertTrue(foreign.exists());
+    }
+
+    @Test
+    public void segmentRowsBeyondOneMappingAreRejected() throws IOException {
+        try {
+            new PostureStore(dir, Integer.MAX_VALUE);
+            fail("accepted more rows than one segment can hold");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private PostureStore flushedStore() throws IOException {
+        PostureStore store = new PostureStore(dir, SEGMENT_ROWS);
+        appendRows(store);
+        store.flush();
+        return store;
+    }
+
+    private static void appendRows(PostureStore store) throws IOException {
+        for (int i = 0; i < ROWS; i++) {
+            store.append(i, FIRST_TIMESTAMP + i, packed(i % 5 == 0));
+        }
+    }
+
+    private static int packed(boolean encrypted) {
+        int packed = ResultSnapshot.pack(0,
+                ResultSnapshot.indexOf(ResultSnapshot.KEY_LOCATION), Outcome.ENABLED);
+        return ResultSnapshot.pack(packed, ENCRYPTION, encrypted ? Outcome.PASS : Outcome.FAIL);
+    }
+
+    private static long countRows(PostureStore store, long from, long to) {
+        long[] counts = new long[1 << Outcome.BITS];
+        store.countOutcomes(ENCRYPTION, from, to, counts);
+        long rows = 0;
+        for (long count : counts) {
+            rows += count;
+        }
+        return rows;
+    }
+}